@@ -0,0 +1,28 @@
+package onl.oss.androidx.concurrent.benchmark;
+
+import onl.oss.androidx.concurrent.Async;
+import onl.oss.androidx.concurrent.SingleThreadDispatcher;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Android のメインルーパーの代わりに、専用スレッドをメインスレッドとして使用します。
+@State(Scope.Benchmark)
+public class MainLooper {
+
+    SingleThreadDispatcher dispatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = new SingleThreadDispatcher("benchmark-main");
+        Async.setMainThreadDispatcher(dispatcher);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.quit();
+    }
+}
@@ -0,0 +1,71 @@
+package onl.oss.androidx.concurrent.benchmark;
+
+import onl.oss.androidx.concurrent.Async;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// 投入からワーカースレッドでの開始までの遅延と、投入からメインスレッドのコールバックまでの遅延を、
+// ExecutorService を直接使用した場合と比較します。
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+
+    private ExecutorService raw;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        raw = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        raw.shutdown();
+    }
+
+    @Benchmark
+    public void executorSubmit(Signal signal) {
+        signal.reset();
+        raw.submit(signal.signalOnWorker);
+        signal.await();
+    }
+
+    @Benchmark
+    public void asyncSubmit(MainLooper main, Signal signal) {
+        signal.reset();
+        Async.execute(signal.signalOnWorker);
+        signal.await();
+    }
+
+    @Benchmark
+    public void executorRoundTrip(final MainLooper main, final Signal signal) {
+        signal.reset();
+        raw.execute(new Runnable() {
+            @Override
+            public void run() {
+                main.dispatcher.post(signal.signalRunnable);
+            }
+        });
+        signal.await();
+    }
+
+    @Benchmark
+    public void asyncRoundTrip(MainLooper main, Signal signal) {
+        signal.reset();
+        Async.execute(signal.work).onSucceeded(signal.onSucceeded);
+        signal.arm();
+        signal.await();
+    }
+}
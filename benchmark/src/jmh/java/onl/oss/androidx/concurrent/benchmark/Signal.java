@@ -0,0 +1,76 @@
+package onl.oss.androidx.concurrent.benchmark;
+
+import onl.oss.androidx.concurrent.AsyncCallable;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.LockSupport;
+
+// ベンチマーク・スレッドごとの完了通知です。
+// 計測対象以外の割り当てが混ざらないように、コールバックはあらかじめ作成して使い回します。
+@State(Scope.Thread)
+public class Signal {
+
+    private static final Integer RESULT = 42;
+
+    private volatile Thread waiter;
+    private volatile boolean armed;
+    private volatile boolean done;
+
+    // ワーカースレッドに届いた時点で通知します。
+    final Callable<Integer> signalOnWorker = new Callable<Integer>() {
+        @Override
+        public Integer call() {
+            signal();
+            return RESULT;
+        }
+    };
+
+    // コールバックを設定し終えるまで完了を待ってから結果を返します。
+    final Callable<Integer> work = new Callable<Integer>() {
+        @Override
+        public Integer call() {
+            while(!armed) {
+                Thread.yield();
+            }
+            return RESULT;
+        }
+    };
+
+    final Runnable signalRunnable = new Runnable() {
+        @Override
+        public void run() {
+            signal();
+        }
+    };
+
+    final AsyncCallable.Success<Integer> onSucceeded = new AsyncCallable.Success<Integer>() {
+        @Override
+        public void onSucceeded(Integer result) {
+            signal();
+        }
+    };
+
+    void reset() {
+        waiter = Thread.currentThread();
+        armed = false;
+        done = false;
+    }
+
+    void arm() {
+        armed = true;
+    }
+
+    void signal() {
+        done = true;
+        LockSupport.unpark(waiter);
+    }
+
+    void await() {
+        while(!done) {
+            LockSupport.park(this);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package onl.oss.androidx.concurrent.benchmark;
+
+import onl.oss.androidx.concurrent.Async;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+// 投入するスレッドの数を変えて、Async.execute → onSucceeded の往復のスループットを計測します。
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ThroughputBenchmark {
+
+    private static void roundTrip(Signal signal) {
+        signal.reset();
+        Async.execute(signal.work).onSucceeded(signal.onSucceeded);
+        signal.arm();
+        signal.await();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void submitters01(MainLooper main, Signal signal) {
+        roundTrip(signal);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void submitters04(MainLooper main, Signal signal) {
+        roundTrip(signal);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void submitters16(MainLooper main, Signal signal) {
+        roundTrip(signal);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void submitters64(MainLooper main, Signal signal) {
+        roundTrip(signal);
+    }
+}
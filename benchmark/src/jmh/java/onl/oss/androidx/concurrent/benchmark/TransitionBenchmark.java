@@ -0,0 +1,73 @@
+package onl.oss.androidx.concurrent.benchmark;
+
+import onl.oss.androidx.concurrent.AsyncCallable;
+import onl.oss.androidx.concurrent.Task;
+import onl.oss.androidx.concurrent.WorkerResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Task の状態遷移（ワーカー側の投稿とメインスレッドでの配送）と WorkerResult.dispatch のコストを、スレッド数を変えて計測します。
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TransitionBenchmark {
+
+    private static final Integer RESULT = 42;
+
+    private final WorkerResult<Integer> succeeded = new WorkerResult<Integer>(RESULT);
+
+    private Blackhole blackhole;
+
+    private final AsyncCallable.Success<Integer> onSucceeded = new AsyncCallable.Success<Integer>() {
+        @Override
+        public void onSucceeded(Integer result) {
+            blackhole.consume(result);
+        }
+    };
+
+    static final class ResultTask extends Task<Integer> {
+        @Override
+        protected Integer call() {
+            return RESULT;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Task<Integer> taskRun01(MainLooper main) {
+        ResultTask task = new ResultTask();
+        task.run();
+        return task;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Task<Integer> taskRun08(MainLooper main) {
+        ResultTask task = new ResultTask();
+        task.run();
+        return task;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void dispatch01(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        succeeded.dispatch(onSucceeded);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void dispatch08(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        succeeded.dispatch(onSucceeded);
+    }
+}
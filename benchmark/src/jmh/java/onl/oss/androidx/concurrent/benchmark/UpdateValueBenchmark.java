@@ -0,0 +1,51 @@
+package onl.oss.androidx.concurrent.benchmark;
+
+import onl.oss.androidx.concurrent.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 複数のスレッドが同じタスクの updateValue を呼び出したときのコストを計測します。
+// 配送待ちの値は1つにまとめられるので、メインスレッドへの投稿は更新の回数より少なくなります。
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class UpdateValueBenchmark {
+
+    private static final Integer VALUE = 42;
+
+    static final class ValueTask extends Task<Integer> {
+        @Override
+        protected Integer call() {
+            return null;
+        }
+
+        void update(Integer value) {
+            updateValue(value);
+        }
+    }
+
+    private final ValueTask task = new ValueTask();
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public void uncontended(MainLooper main) {
+        task.update(VALUE);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public void contended(MainLooper main) {
+        task.update(VALUE);
+    }
+}
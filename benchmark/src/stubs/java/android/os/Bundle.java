@@ -0,0 +1,26 @@
+package android.os;
+
+import java.io.Serializable;
+
+public final class Bundle {
+
+    public Bundle() {
+        throw new RuntimeException("Stub!");
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public Serializable getSerializable(String key) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public void putParcelable(String key, Parcelable value) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public <T extends Parcelable> T getParcelable(String key) {
+        throw new RuntimeException("Stub!");
+    }
+}
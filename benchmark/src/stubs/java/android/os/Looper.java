@@ -0,0 +1,15 @@
+package android.os;
+
+public final class Looper {
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        throw new RuntimeException("Stub!");
+    }
+
+    public Thread getThread() {
+        throw new RuntimeException("Stub!");
+    }
+}
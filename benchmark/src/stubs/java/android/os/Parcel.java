@@ -0,0 +1,33 @@
+package android.os;
+
+import java.io.Serializable;
+
+public final class Parcel {
+
+    private Parcel() {
+    }
+
+    public void writeInt(int val) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public int readInt() {
+        throw new RuntimeException("Stub!");
+    }
+
+    public void writeValue(Object v) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public Object readValue(ClassLoader loader) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public void writeSerializable(Serializable s) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public Serializable readSerializable() {
+        throw new RuntimeException("Stub!");
+    }
+}
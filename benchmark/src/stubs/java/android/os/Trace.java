@@ -0,0 +1,23 @@
+package android.os;
+
+public final class Trace {
+
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public static void endSection() {
+        throw new RuntimeException("Stub!");
+    }
+
+    public static void beginAsyncSection(String methodName, int cookie) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public static void endAsyncSection(String methodName, int cookie) {
+        throw new RuntimeException("Stub!");
+    }
+}
@@ -0,0 +1,19 @@
+package android.view;
+
+public final class Choreographer {
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    private Choreographer() {
+    }
+
+    public static Choreographer getInstance() {
+        throw new RuntimeException("Stub!");
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        throw new RuntimeException("Stub!");
+    }
+}
@@ -0,0 +1,14 @@
+package androidx.fragment.app;
+
+import androidx.lifecycle.LifecycleOwner;
+
+public class Fragment {
+
+    public final FragmentManager getParentFragmentManager() {
+        throw new RuntimeException("Stub!");
+    }
+
+    public LifecycleOwner getViewLifecycleOwner() {
+        throw new RuntimeException("Stub!");
+    }
+}
@@ -0,0 +1,10 @@
+package androidx.fragment.app;
+
+import androidx.lifecycle.LifecycleOwner;
+
+public abstract class FragmentManager {
+
+    public final void setFragmentResultListener(String requestKey, LifecycleOwner lifecycleOwner, FragmentResultListener listener) {
+        throw new RuntimeException("Stub!");
+    }
+}
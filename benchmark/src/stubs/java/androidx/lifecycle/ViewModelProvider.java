@@ -0,0 +1,12 @@
+package androidx.lifecycle;
+
+public class ViewModelProvider {
+
+    public ViewModelProvider(ViewModelStoreOwner owner) {
+        throw new RuntimeException("Stub!");
+    }
+
+    public <T extends ViewModel> T get(Class<T> modelClass) {
+        throw new RuntimeException("Stub!");
+    }
+}
@@ -0,0 +1,6 @@
+package androidx.lifecycle;
+
+public interface ViewModelStoreOwner {
+
+    ViewModelStore getViewModelStore();
+}
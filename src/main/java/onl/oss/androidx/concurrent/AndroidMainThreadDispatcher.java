@@ -0,0 +1,68 @@
+package onl.oss.androidx.concurrent;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Android のメインルーパーと Choreographer を使用する MainThreadDispatcher です。
+ */
+public class AndroidMainThreadDispatcher implements MainThreadDispatcher {
+
+    private final Looper looper = Looper.getMainLooper();
+    private final Handler handler = new Handler(looper);
+
+    // 同じコマンドで毎フレーム FrameCallback を生成しないように、コマンドごとに1つだけ作成して使い回します。
+    private final ConcurrentMap<Runnable, FrameCommand> frameCommands = new ConcurrentHashMap<Runnable, FrameCommand>();
+
+    @Override
+    public boolean isMainThread() {
+        return looper.getThread() == Thread.currentThread();
+    }
+
+    @Override
+    public void post(Runnable runnable) {
+        handler.post(runnable);
+    }
+
+    @Override
+    public void postAtFrontOfQueue(Runnable runnable) {
+        handler.postAtFrontOfQueue(runnable);
+    }
+
+    @Override
+    public void postOnNextFrame(Runnable runnable) {
+        FrameCommand command = frameCommands.get(runnable);
+        if(command == null) {
+            FrameCommand created = new FrameCommand(runnable);
+            FrameCommand existing = frameCommands.putIfAbsent(runnable, created);
+            command = (existing != null) ? existing : created;
+        }
+        if(isMainThread()) {
+            command.run();
+        } else {
+            // Choreographer はメインスレッドから取得する必要があるため、フレーム・コールバックの登録はメインスレッドで行います。
+            handler.post(command);
+        }
+    }
+
+    private static final class FrameCommand implements Runnable, Choreographer.FrameCallback {
+        private final Runnable runnable;
+
+        private FrameCommand(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            runnable.run();
+        }
+    }
+}
@@ -1,11 +1,42 @@
 package onl.oss.androidx.concurrent;
 
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+public class Async<V> implements AsyncRunnable, AsyncCallable<V>, Cancellable {
+
+    public enum Priority {
+        UI_CRITICAL,
+        NORMAL,
+        PREFETCH
+    }
+
+    /** callbackOn() に指定すると、コールバックをメインスレッドに投稿せず、完了したワーカースレッドでそのまま呼び出します。
+     */
+    public static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final int IO_POOL_SIZE = 64;
 
-public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
+    private static final Object COMPLETED = new Object();
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Async, Object> downstreamUpdater = AtomicReferenceFieldUpdater.newUpdater(Async.class, Object.class, "downstream");
 
     private static ThreadFactory defaultThreadFactory;
 
@@ -16,24 +47,36 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
     public static void setDefaultThreadFactory(ThreadFactory factory) {
         defaultThreadFactory = factory;
         executor = null;
+        ioExecutor = null;
+        computeExecutor = null;
+    }
+
+    private static ThreadFactory getThreadFactory() {
+        ThreadFactory factory = getDefaultThreadFactory();
+        if(factory == null) {
+            factory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+        }
+        return factory;
     }
 
     private static Executor executor;
 
+    /** タスクを実行するエグゼキューターを返します。
+     * 既定では CPU のコア数のスレッドを持つ PriorityExecutor です。キューが満杯になると、最も優先度の低いタスクがキャンセルされ（CANCELLED が配送されます）、
+     * execute() が RejectedExecutionException をスローすることはありません。
+     *
+     * @return エグゼキューター
+     */
     public static Executor getExecutor() {
         if(executor == null) {
-            ThreadFactory factory = getDefaultThreadFactory();
-            if(factory == null) {
-                factory = new ThreadFactory() {
-                    @Override
-                    public Thread newThread(Runnable runnable) {
-                        Thread thread = new Thread(runnable);
-                        thread.setDaemon(true);
-                        return thread;
-                    }
-                };
-            }
-            executor = Executors.newCachedThreadPool(factory);
+            executor = new PriorityExecutor(getThreadFactory());
         }
         return executor;
     }
@@ -42,69 +85,634 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
         Async.executor = executor;
     }
 
-    public static AsyncRunnable execute(final LooseRunnable runnable) {
-        Async<Void> async = new Async<Void>(new Callable<Void>() {
+    public static TaskListener getTaskListener() {
+        return Task.listener;
+    }
+
+    /** すべてのタスクの投入、開始、終了、コールバックの時刻を受け取るリスナーを登録します。
+     * null を指定すると登録を解除します。リスナーがない場合の追加のコストは volatile フィールドの読み取りだけです。
+     *
+     * @param listener リスナー
+     */
+    public static void setTaskListener(TaskListener listener) {
+        Task.listener = listener;
+    }
+
+    public static TaskTracer getTaskTracer() {
+        return Task.tracer;
+    }
+
+    /** タスクの実行とコールバックを記録するトレーサーを登録します。null を指定すると登録を解除します。
+     * Android では SystraceTracer を、JVM 上での解析には TraceRecorder を使用できます。
+     *
+     * @param tracer トレーサー
+     */
+    public static void setTaskTracer(TaskTracer tracer) {
+        Task.tracer = tracer;
+    }
+
+    public static MainThreadDispatcher getMainThreadDispatcher() {
+        return MainThread.getDispatcher();
+    }
+
+    /** Task や Async がメインスレッドとして扱うスレッドへの配送方法を指定します。
+     * Android 以外の JVM でテストやベンチマークを行う場合に、タスクを実行する前に指定してください。
+     *
+     * @param dispatcher ディスパッチャー
+     */
+    public static void setMainThreadDispatcher(MainThreadDispatcher dispatcher) {
+        MainThread.setDispatcher(dispatcher);
+    }
+
+    private static Executor ioExecutor;
+
+    public static Executor getIoExecutor() {
+        if(ioExecutor == null) {
+            // ブロッキングIOはCPUをほとんど使わないため、スレッド数を多めに確保してアイドル時には縮小させます。
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(IO_POOL_SIZE, IO_POOL_SIZE,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), getThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+            ioExecutor = pool;
+        }
+        return ioExecutor;
+    }
+
+    public static void setIoExecutor(Executor executor) {
+        Async.ioExecutor = executor;
+    }
+
+    private static Executor computeExecutor;
+
+    public static Executor getComputeExecutor() {
+        if(computeExecutor == null) {
+            computeExecutor = new PriorityExecutor(getThreadFactory());
+        }
+        return computeExecutor;
+    }
+
+    public static void setComputeExecutor(Executor executor) {
+        Async.computeExecutor = executor;
+    }
+
+    public static AsyncRunnable execute(LooseRunnable runnable) {
+        return execute(Priority.NORMAL, runnable);
+    }
+
+    public static <V> AsyncCallable<V> execute(Callable<V> callable) {
+        return execute(Priority.NORMAL, callable);
+    }
+
+    public static AsyncRunnable execute(Priority priority, LooseRunnable runnable) {
+        return start(getExecutor(), priority, runnable);
+    }
+
+    public static <V> AsyncCallable<V> execute(Priority priority, Callable<V> callable) {
+        return start(getExecutor(), priority, callable);
+    }
+
+    public static <V, P> ProgressAsyncCallable<V, P> execute(ProgressCallable<V, P> callable) {
+        return execute(Priority.NORMAL, callable);
+    }
+
+    public static <V, P> ProgressAsyncCallable<V, P> execute(Priority priority, ProgressCallable<V, P> callable) {
+        Executor executor = getExecutor();
+        ProgressAsync<V, P> async = new ProgressAsync<V, P>(executor, priority, callable);
+        submit(executor, priority, async.getTask());
+        return async;
+    }
+
+    /** 指定したキーで実行中の処理がある場合、新しく実行せずにその処理の結果を受け取ります。
+     * 実行中の処理がない場合は、指定した処理を実行します。
+     * 元の処理は、結果を待つすべての呼び出し元が cancel() を呼び出した場合にだけキャンセルされます。
+     *
+     * @param key 処理を識別するキー
+     * @param callable 実行する処理
+     * @return 非同期処理
+     */
+    public static <V> AsyncCallable<V> execute(Object key, Callable<V> callable) {
+        Executor executor = getExecutor();
+        for(;;) {
+            SingleFlight<V> flight = SingleFlight.obtain(key, callable);
+            Async<V> async = new Async<V>(executor, Priority.NORMAL, flight);
+            async.upstream = flight;
+            if(flight.subscribe(async)) {
+                if(flight.markStarted()) {
+                    submit(executor, Priority.NORMAL, flight.getSource());
+                }
+                return async;
+            }
+        }
+    }
+
+    private static AsyncCache cache;
+
+    public static synchronized AsyncCache getCache() {
+        if(cache == null) {
+            cache = new AsyncCache(AsyncCache.DEFAULT_MAX_WEIGHT);
+        }
+        return cache;
+    }
+
+    public static synchronized void setCache(AsyncCache cache) {
+        Async.cache = cache;
+    }
+
+    /** キャッシュに有効な結果がある場合、処理を実行せずにその結果を onSucceeded に届けます。
+     * ない場合は処理を実行し、その結果を指定した有効期限でキャッシュします。
+     * 同じキーで実行中の処理がある場合は、その処理の結果を共有します。
+     *
+     * @param key 結果を識別するキー
+     * @param ttl 結果の有効期限
+     * @param unit ttl の単位
+     * @param callable 実行する処理
+     * @return 非同期処理
+     */
+    public static <V> AsyncCallable<V> cached(final Object key, long ttl, TimeUnit unit, Callable<V> callable) {
+        final AsyncCache cache = getCache();
+        final long ttlNanos = unit.toNanos(ttl);
+        AsyncCache.Entry entry = cache.lookup(key);
+        if(entry == null) {
+            return fetch(cache, key, ttlNanos, callable);
+        }
+        if(entry.isExpired()) {
+            // stale-while-revalidate: 古い結果をすぐに返し、バックグラウンドで新しい結果を取得します。
+            // 呼び出し元は古い結果を受け取るので、取得の失敗は報告しません。古い結果が残り、次の呼び出しで再び取得します。
+            fetch(cache, key, ttlNanos, callable).onFailed(IGNORE_FAILURE);
+        }
+        @SuppressWarnings("unchecked")
+        final V value = (V)entry.value;
+        Async<V> async = new Async<V>(getExecutor(), Priority.NORMAL, new Callable<V>() {
             @Override
-            public Void call() throws Exception {
-                runnable.run();
-                return null;
+            public V call() {
+                return value;
             }
         });
-        getExecutor().execute(async.task);
+        // キャッシュから返す場合はプールのスレッドを使わず、呼び出したスレッドでタスクを完了させます。
+        async.task.run();
         return async;
     }
 
-    public static <V> AsyncCallable<V> execute(Callable<V> callable) {
-        Async<V> async = new Async<V>(callable);
-        getExecutor().execute(async.task);
+    private static final Failure IGNORE_FAILURE = new Failure() {
+        @Override
+        public void onFailed(Exception exception) {
+        }
+    };
+
+    private static <V> AsyncCallable<V> fetch(final AsyncCache cache, final Object key, final long ttlNanos, Callable<V> callable) {
+        return execute(new CacheFillKey(cache, key), callable).map(new AsyncCallable.Function<V, V>() {
+            @Override
+            public V apply(V value) {
+                cache.put(key, value, ttlNanos);
+                return value;
+            }
+        });
+    }
+
+    public static AsyncRunnable io(LooseRunnable runnable) {
+        return start(getIoExecutor(), Priority.NORMAL, runnable);
+    }
+
+    public static <V> AsyncCallable<V> io(Callable<V> callable) {
+        return start(getIoExecutor(), Priority.NORMAL, callable);
+    }
+
+    public static AsyncRunnable compute(LooseRunnable runnable) {
+        return start(getComputeExecutor(), Priority.NORMAL, runnable);
+    }
+
+    public static <V> AsyncCallable<V> compute(Callable<V> callable) {
+        return start(getComputeExecutor(), Priority.NORMAL, callable);
+    }
+
+    public static AsyncRunnable compute(Priority priority, LooseRunnable runnable) {
+        return start(getComputeExecutor(), priority, runnable);
+    }
+
+    public static <V> AsyncCallable<V> compute(Priority priority, Callable<V> callable) {
+        return start(getComputeExecutor(), priority, callable);
+    }
+
+    /** 同じレーン・キーを指定した処理を、投入順に1つずつ実行します。
+     * 異なるレーンの処理は並行して実行されます。レーンは専用のスレッドを持たず、I/O 用のスレッドプールを共有します。
+     *
+     * @param laneKey レーン・キー
+     * @param runnable 処理
+     * @return 処理のハンドル
+     */
+    public static AsyncRunnable serial(Object laneKey, LooseRunnable runnable) {
+        return start(SerialLane.obtain(laneKey), Priority.NORMAL, runnable);
+    }
+
+    public static <V> AsyncCallable<V> serial(Object laneKey, Callable<V> callable) {
+        return start(SerialLane.obtain(laneKey), Priority.NORMAL, callable);
+    }
+
+    /** 指定したレーンで実行中または実行待ちの処理の数を返します。
+     *
+     * @param laneKey レーン・キー
+     * @return 実行中または実行待ちの処理の数
+     */
+    public static int getSerialQueueDepth(Object laneKey) {
+        return SerialLane.getQueueDepth(laneKey);
+    }
+
+    /** 最後の投入から指定した時間が経過するまで実行を遅らせ、最新の処理の結果だけを届ける LatestAsync を作成します。
+     *
+     * @param window 実行を遅らせる時間
+     * @param unit window の単位
+     * @param <V> 結果の型
+     * @return LatestAsync
+     */
+    public static <V> LatestAsync<V> debounce(long window, TimeUnit unit) {
+        return new LatestAsync<V>(window, unit);
+    }
+
+    public static AsyncRunnable execute(LifecycleOwner owner, LooseRunnable runnable) {
+        return TaskScope.of(owner).execute(runnable);
+    }
+
+    public static <V> AsyncCallable<V> execute(LifecycleOwner owner, Callable<V> callable) {
+        return TaskScope.of(owner).execute(callable);
+    }
+
+    static AsyncRunnable execute(TaskScope scope, Priority priority, LooseRunnable runnable) {
+        Executor executor = getExecutor();
+        Async<Void> async = new Async<Void>(executor, priority, runnable);
+        async.startIn(scope);
         return async;
     }
 
+    static <V> AsyncCallable<V> execute(TaskScope scope, Priority priority, Callable<V> callable) {
+        Executor executor = getExecutor();
+        Async<V> async = new Async<V>(executor, priority, callable);
+        async.startIn(scope);
+        return async;
+    }
+
+    // 範囲が既に破棄されている場合、処理は実行せずにキャンセルします。
+    private void startIn(TaskScope scope) {
+        this.scope = scope;
+        if(scope.add(this)) {
+            submit(workerExecutor, priority, task);
+        } else {
+            task.cancel(true);
+        }
+    }
+
+    private static AsyncRunnable start(Executor executor, Priority priority, LooseRunnable runnable) {
+        Async<Void> async = new Async<Void>(executor, priority, runnable);
+        submit(executor, priority, async.task);
+        return async;
+    }
+
+    private static <V> AsyncCallable<V> start(Executor executor, Priority priority, Callable<V> callable) {
+        Async<V> async = new Async<V>(executor, priority, callable);
+        submit(executor, priority, async.task);
+        return async;
+    }
+
+    /** 処理を投入せずに Async を作成します。callbackOn() やコールバックを設定してから start() で開始してください。
+     * 投入する前にコールバックのエグゼキューターが確定するので、Async.DIRECT のコールバックも必ずワーカースレッドで呼び出されます。
+     *
+     * @param callable 実行する処理
+     * @return 開始前の非同期処理
+     */
+    public static <V> Async<V> prepare(Callable<V> callable) {
+        return prepare(Priority.NORMAL, callable);
+    }
+
+    public static <V> Async<V> prepare(Priority priority, Callable<V> callable) {
+        Async<V> async = new Async<V>(getExecutor(), priority, callable);
+        async.prepared = true;
+        return async;
+    }
+
+    public static Async<Void> prepare(LooseRunnable runnable) {
+        return prepare(Priority.NORMAL, runnable);
+    }
+
+    public static Async<Void> prepare(Priority priority, LooseRunnable runnable) {
+        Async<Void> async = new Async<Void>(getExecutor(), priority, runnable);
+        async.prepared = true;
+        return async;
+    }
+
+    /** prepare() で作成した処理を投入します。
+     *
+     * @return このオブジェクト
+     * @throws IllegalStateException prepare() で作成していない場合、または既に開始している場合
+     */
+    public Async<V> start() {
+        synchronized(this) {
+            if(!prepared) {
+                throw new IllegalStateException("Async is already started");
+            }
+            prepared = false;
+        }
+        submit(workerExecutor, priority, task);
+        return this;
+    }
+
+    public static <V> AsyncCallable<List<V>> all(Collection<? extends Callable<V>> callables) {
+        return join(new Join.All<V>(callables));
+    }
+
+    public static <V> AsyncCallable<V> any(Collection<? extends Callable<V>> callables) {
+        return join(new Join.Any<V>(callables));
+    }
+
+    public static <V> AsyncCallable<V> firstSuccessful(Collection<? extends Callable<V>> callables) {
+        return join(new Join.FirstSuccessful<V>(callables));
+    }
+
+    public static <T> AsyncStream<T> stream(StreamCallable<T> producer) {
+        return stream(AsyncStream.DEFAULT_CAPACITY, AsyncStream.DEFAULT_MAX_BATCH_SIZE, producer);
+    }
+
+    public static <T> AsyncStream<T> stream(int capacity, int maxBatchSize, StreamCallable<T> producer) {
+        AsyncStream<T> stream = new AsyncStream<T>(producer, capacity, maxBatchSize);
+        submit(getIoExecutor(), Priority.NORMAL, stream.getTask());
+        return stream;
+    }
+
+    private static <R> AsyncCallable<R> join(Join<?, R> join) {
+        Executor executor = getExecutor();
+        Async<R> async = new Async<R>(executor, Priority.NORMAL, join);
+        async.upstream = join;
+        join.start(async.task, executor);
+        return async;
+    }
+
+    // 投入はせずに、呼び出し元が getTask().run() で実行する Async を作成します。
+    static <V> Async<V> deferred(Executor executor, Callable<V> callable) {
+        return new Async<V>(executor, Priority.NORMAL, callable);
+    }
+
+    static void submit(Executor executor, Priority priority, Runnable task) {
+        if((Task.listener != null || Task.tracer != null) && task instanceof Task) {
+            ((Task<?>)task).submitted();
+        }
+        if(executor instanceof PriorityExecutor) {
+            ((PriorityExecutor)executor).execute(task, priority);
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    private final Executor workerExecutor;
+    private final Priority priority;
     private Task<V> task;
+    private Cancellable upstream;
+    private RetryStage<V> retryStage;
+    private TaskScope scope;
+    private boolean inline;
+    private boolean prepared;
+    private volatile Object downstream;
     private Cancel cancel;
     private AsyncRunnable.Success runnableSuccess;
     private AsyncCallable.Success<V> callableSuccess;
     private Failure failure;
     private Complete complete;
+    private Progress progress;
+    private Message message;
+    // ProgressAsync だけが設定します。型は ProgressCallable の途中の結果の型と一致します。
+    private Partial<Object> partial;
+    private Retry retry;
+    private Worker.State settled;
 
-    private Async(final Callable<V> callable) {
-        task = new Task<V>() {
+    private Async(Executor executor, Priority priority, Object body) {
+        this.workerExecutor = executor;
+        this.priority = priority;
+        this.task = new AsyncTask<V>(this, body);
+    }
+
+    @Override
+    public void cancel() {
+        if(task.cancel(true) && upstream != null) {
+            upstream.cancel();
+        }
+    }
+
+    @Override
+    public Async<V> timeout(long timeout, TimeUnit unit) {
+        task.setTimeout(timeout, unit);
+        return this;
+    }
+
+    @Override
+    public Async<V> deadline(long deadlineNanos) {
+        task.setDeadline(deadlineNanos);
+        return this;
+    }
+
+    @Override
+    public Async<V> cancelOnTimeout() {
+        task.setCancelOnTimeout(true);
+        return this;
+    }
+
+    @Override
+    public <R> Async<R> map(final AsyncCallable.Function<? super V, ? extends R> function) {
+        return then(new Continuation<V, R>(this) {
             @Override
-            protected V call() throws Exception {
-                return callable.call();
+            protected R apply(V value) throws Exception {
+                return function.apply(value);
             }
+        }, workerExecutor, true);
+    }
+
+    @Override
+    public <R> Async<R> flatMap(final AsyncCallable.Function<? super V, ? extends Callable<? extends R>> function) {
+        return then(new Continuation<V, R>(this) {
             @Override
-            protected void cancelled() {
-                Async.this.cancelled();
+            protected R apply(V value) throws Exception {
+                return function.apply(value).call();
             }
+        }, workerExecutor, false);
+    }
+
+    @Override
+    public Async<V> recover(final AsyncCallable.Function<? super Exception, ? extends V> function) {
+        return then(new Continuation<V, V>(this) {
             @Override
-            protected void succeeded() {
-                Async.this.succeeded();
+            protected V apply(V value) {
+                return value;
             }
             @Override
-            protected void failed() {
-                Async.this.failed();
+            protected V recover(Exception exception) throws Exception {
+                return function.apply(exception);
             }
-        };
+        }, workerExecutor, true);
     }
 
     @Override
-    public void cancel() {
-        task.cancel(true);
+    public Async<V> onExecutor(Executor executor) {
+        return then(new Continuation<V, V>(this) {
+            @Override
+            protected V apply(V value) {
+                return value;
+            }
+        }, executor, false);
+    }
+
+    private <R> Async<R> then(Continuation<V, R> continuation, Executor executor, boolean inline) {
+        Async<R> next = new Async<R>(executor, priority, continuation);
+        next.upstream = this;
+        next.inline = inline;
+        attach(next);
+        return next;
+    }
+
+    @Override
+    public Async<V> retry(RetryPolicy policy) {
+        Async<V> next = new Async<V>(workerExecutor, priority, null);
+        RetryStage<V> stage = new RetryStage<V>(this, task, ((AsyncTask<V>)task).newAttempt(next), workerExecutor, priority, policy, next);
+        next.task = new AsyncTask<V>(next, stage);
+        next.upstream = stage;
+        next.retryStage = stage;
+        attach(next);
+        return next;
+    }
+
+    private void attach(Async<?> next) {
+        next.task.setTag(task.getTag());
+        next.task.setCallbackExecutor(task.getCallbackExecutor());
+        if(scope != null) {
+            next.scope = scope;
+            scope.add(next);
+        }
+        boolean completed;
+        synchronized(this) {
+            // 中間ステージの完了は後段へ渡されるだけで、コールバックは呼び出されません。黙って捨てずに、ここで知らせます。
+            if(cancel != null || runnableSuccess != null || callableSuccess != null || failure != null || complete != null) {
+                throw new IllegalStateException("Async already has callbacks; register them on the last stage");
+            }
+            completed = !downstreamUpdater.compareAndSet(this, null, next);
+            if(completed) {
+                if(downstream != COMPLETED) {
+                    throw new IllegalStateException("Async is already chained");
+                }
+                downstream = next;
+            }
+        }
+        task.setIntermediate();
+        if(completed) {
+            // 既に完了しているので、後続のステージをここから開始します。
+            next.resume(this);
+        }
+    }
+
+    private void checkNotChained() {
+        if(isChained()) {
+            throw new IllegalStateException("Async is already chained; register callbacks on the last stage");
+        }
+    }
+
+    // ワーカースレッド（キャンセルの場合はキャンセルしたスレッド）でタスクの完了時に呼び出されます。
+    private void completed() {
+        Object next = downstream;
+        while(next == null) {
+            if(downstreamUpdater.compareAndSet(this, null, COMPLETED)) {
+                return;
+            }
+            next = downstream;
+        }
+        if(next instanceof Async) {
+            ((Async<?>)next).resume(this);
+        }
+    }
+
+    private void resume(Async<?> previous) {
+        if(retryStage != null) {
+            @SuppressWarnings("unchecked")
+            Task<V> attempt = (Task<V>)previous.task;
+            retryStage.attemptDone(attempt, attempt.getTimeoutFailure());
+        } else if(previous.task.isCancelled() && previous.task.getTimeoutFailure() == null) {
+            // タイムアウトの例外はキャンセルされたタスクだけが返すので、完了したタスクはここに来ません。
+            task.cancel(true);
+        } else if(inline && !previous.task.isCancelled() && workerExecutor == previous.workerExecutor && !MainThread.isCurrentThread()) {
+            // 中間ステージはメインスレッドを経由せず、前段のワーカースレッドでそのまま実行します。
+            task.run();
+        } else {
+            submit(workerExecutor, priority, task);
+        }
+    }
+
+    private boolean isChained() {
+        return downstream instanceof Async;
+    }
+
+    // ライフサイクル・オーナーが指定した状態を下回っている場合、コールバックを呼び出しません。
+    private boolean isSuppressed() {
+        return scope != null && !scope.isActive();
     }
 
     protected void cancelled() {
+        if(isChained() || isSuppressed()) {
+            return;
+        }
+        Cancel cancel;
+        Complete complete;
+        synchronized(this) {
+            settled = Worker.State.CANCELLED;
+            cancel = this.cancel;
+            complete = this.complete;
+        }
+        deliverCancelled(cancel, complete);
+    }
+
+    protected void succeeded() {
+        if(isChained() || isSuppressed()) {
+            return;
+        }
+        AsyncRunnable.Success runnableSuccess;
+        AsyncCallable.Success<V> callableSuccess;
+        Complete complete;
+        synchronized(this) {
+            settled = Worker.State.SUCCEEDED;
+            runnableSuccess = this.runnableSuccess;
+            callableSuccess = this.callableSuccess;
+            complete = this.complete;
+        }
+        deliverSucceeded(runnableSuccess, callableSuccess, complete);
+    }
+
+    protected void failed() {
+        if(isChained() || isSuppressed()) {
+            return;
+        }
+        Failure failure;
+        Complete complete;
+        synchronized(this) {
+            settled = Worker.State.FAILED;
+            failure = this.failure;
+            complete = this.complete;
+        }
+        deliverFailed(failure, complete, true);
+    }
+
+    private void deliverCancelled(Cancel cancel, Complete complete) {
         Exception exception = null;
         try {
             if(cancel != null) {
-                cancel.onCancelled();
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    cancel.onCancelled();
+                } finally {
+                    CallbackWatchdog.end(watch, cancel);
+                }
             }
         } catch(Exception e) {
             exception = e;
         } finally {
             if(complete != null) {
                 try {
-                    complete.onCompleted(Worker.State.CANCELLED);
+                    CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                    try {
+                        complete.onCompleted(Worker.State.CANCELLED);
+                    } finally {
+                        CallbackWatchdog.end(watch, complete);
+                    }
                 } catch(Exception e) {
                     if(exception == null) {
                         exception = e;
@@ -112,30 +720,40 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
                 }
             }
             if(exception != null) {
-                Thread.UncaughtExceptionHandler ueh = Thread.currentThread().getUncaughtExceptionHandler();
-                if(ueh != null) {
-                    ueh.uncaughtException(Thread.currentThread(), exception);
-                } else {
-                    throw new AsyncWrappedException(exception);
-                }
+                uncaught(exception);
             }
         }
     }
 
-    protected void succeeded() {
+    private void deliverSucceeded(AsyncRunnable.Success runnableSuccess, AsyncCallable.Success<V> callableSuccess, Complete complete) {
         Exception exception = null;
         try {
             if(runnableSuccess != null) {
-                runnableSuccess.onSucceeded();
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    runnableSuccess.onSucceeded();
+                } finally {
+                    CallbackWatchdog.end(watch, runnableSuccess);
+                }
             } else if(callableSuccess != null) {
-                callableSuccess.onSucceeded(task.getValue());
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    callableSuccess.onSucceeded(task.getValue());
+                } finally {
+                    CallbackWatchdog.end(watch, callableSuccess);
+                }
             }
         } catch(Exception e) {
             exception = e;
         } finally {
             if(complete != null) {
                 try {
-                    complete.onCompleted(Worker.State.SUCCEEDED);
+                    CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                    try {
+                        complete.onCompleted(Worker.State.SUCCEEDED);
+                    } finally {
+                        CallbackWatchdog.end(watch, complete);
+                    }
                 } catch(Exception e) {
                     if(exception == null) {
                         exception = e;
@@ -143,17 +761,12 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
                 }
             }
             if(exception != null) {
-                Thread.UncaughtExceptionHandler ueh = Thread.currentThread().getUncaughtExceptionHandler();
-                if(ueh != null) {
-                    ueh.uncaughtException(Thread.currentThread(), exception);
-                } else {
-                    throw new AsyncWrappedException(exception);
-                }
+                uncaught(exception);
             }
         }
     }
 
-    protected void failed() {
+    private void deliverFailed(Failure failure, Complete complete, boolean reportUnhandled) {
         Throwable t = task.getException();
         if(t instanceof Error) {
             throw (Error)t;
@@ -161,8 +774,13 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
         Exception exception = null;
         try {
             if(failure != null) {
-                failure.onFailed((Exception)t);
-            } else {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    failure.onFailed((Exception)t);
+                } finally {
+                    CallbackWatchdog.end(watch, failure);
+                }
+            } else if(reportUnhandled) {
                 exception = (Exception)t;
             }
         } catch(Exception e) {
@@ -170,7 +788,12 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
         } finally {
             if(complete != null) {
                 try {
-                    complete.onCompleted(Worker.State.FAILED);
+                    CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                    try {
+                        complete.onCompleted(Worker.State.FAILED);
+                    } finally {
+                        CallbackWatchdog.end(watch, complete);
+                    }
                 } catch(Exception e) {
                     if(exception == null) {
                         exception = e;
@@ -178,43 +801,228 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
                 }
             }
             if(exception != null) {
-                Thread.UncaughtExceptionHandler ueh = Thread.currentThread().getUncaughtExceptionHandler();
-                if(ueh != null) {
-                    ueh.uncaughtException(Thread.currentThread(), exception);
-                } else {
-                    throw new AsyncWrappedException(exception);
-                }
+                uncaught(exception);
             }
         }
     }
 
-    public Async<V> onCancelled(Cancel callback) {
-        this.cancel = callback;
+    // コールバックを設定するより先に完了が配送されていることがあります（DIRECT や、キャンセルをその場で配送した場合など）。
+    // その場合は、後から設定されたコールバックをコールバック用のスレッドで一度だけ呼び出します。
+    // DIRECT の場合はワーカースレッドが既に終わっているので、設定したスレッドで呼び出されます。
+    private void replay(Runnable delivery) {
+        if(task.isCallbackThread()) {
+            delivery.run();
+            return;
+        }
+        Executor executor = task.getCallbackExecutor();
+        if(executor == null) {
+            MainThread.post(delivery);
+        } else {
+            executor.execute(delivery);
+        }
+    }
+
+    public Async<V> tag(String name) {
+        task.setTag(name);
+        return this;
+    }
+
+    public Async<V> callbackOn(Executor executor) {
+        task.setCallbackExecutor(executor);
+        return this;
+    }
+
+    public Async<V> onCancelled(final Cancel callback) {
+        Worker.State state;
+        synchronized(this) {
+            checkNotChained();
+            this.cancel = callback;
+            state = settled;
+        }
+        if(state == Worker.State.CANCELLED && callback != null) {
+            replay(new Runnable() {
+                @Override
+                public void run() {
+                    deliverCancelled(callback, null);
+                }
+            });
+        }
+        return this;
+    }
+
+    public Async<V> onSucceeded(final AsyncRunnable.Success callback) {
+        Worker.State state;
+        synchronized(this) {
+            checkNotChained();
+            this.callableSuccess = null;
+            this.runnableSuccess = callback;
+            state = settled;
+        }
+        if(state == Worker.State.SUCCEEDED && callback != null) {
+            replay(new Runnable() {
+                @Override
+                public void run() {
+                    deliverSucceeded(callback, null, null);
+                }
+            });
+        }
+        return this;
+    }
+
+    public Async<V> onSucceeded(final AsyncCallable.Success<V> callback) {
+        Worker.State state;
+        synchronized(this) {
+            checkNotChained();
+            this.runnableSuccess = null;
+            this.callableSuccess = callback;
+            state = settled;
+        }
+        if(state == Worker.State.SUCCEEDED && callback != null) {
+            replay(new Runnable() {
+                @Override
+                public void run() {
+                    deliverSucceeded(null, callback, null);
+                }
+            });
+        }
         return this;
     }
 
-    public Async<V> onSucceeded(AsyncRunnable.Success callback) {
-        this.callableSuccess = null;
-        this.runnableSuccess = callback;
+    public Async<V> onFailed(final Failure callback) {
+        Worker.State state;
+        synchronized(this) {
+            checkNotChained();
+            this.failure = callback;
+            state = settled;
+        }
+        if(state == Worker.State.FAILED && callback != null) {
+            replay(new Runnable() {
+                @Override
+                public void run() {
+                    deliverFailed(callback, null, false);
+                }
+            });
+        }
         return this;
     }
 
-    public Async<V> onSucceeded(AsyncCallable.Success<V> callback) {
-        this.runnableSuccess = null;
-        this.callableSuccess = callback;
+    public Async<V> onCompleted(final Complete callback) {
+        final Worker.State state;
+        synchronized(this) {
+            checkNotChained();
+            this.complete = callback;
+            state = settled;
+        }
+        if(state != null && callback != null) {
+            replay(new Runnable() {
+                @Override
+                public void run() {
+                    if(state == Worker.State.CANCELLED) {
+                        deliverCancelled(null, callback);
+                    } else if(state == Worker.State.SUCCEEDED) {
+                        deliverSucceeded(null, null, callback);
+                    } else {
+                        deliverFailed(null, callback, false);
+                    }
+                }
+            });
+        }
+        return this;
+    }
+
+    @Override
+    public Async<V> onProgress(Progress callback) {
+        this.progress = callback;
         return this;
     }
 
-    public Async<V> onFailed(Failure callback) {
-        this.failure = callback;
+    @Override
+    public Async<V> onMessage(Message callback) {
+        this.message = callback;
         return this;
     }
 
-    public Async<V> onCompleted(Complete callback) {
-        this.complete = callback;
+
+    private void progressUpdated() {
+        if(progress != null && !isSuppressed()) {
+            try {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    progress.onProgress(task.getWorkDone(), task.getTotalWork());
+                } finally {
+                    CallbackWatchdog.end(watch, progress);
+                }
+            } catch(Exception e) {
+                uncaught(e);
+            }
+        }
+    }
+
+    private void messageUpdated() {
+        if(message != null && !isSuppressed()) {
+            try {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    message.onMessage(task.getMessage());
+                } finally {
+                    CallbackWatchdog.end(watch, message);
+                }
+            } catch(Exception e) {
+                uncaught(e);
+            }
+        }
+    }
+
+    private void published(Object value) {
+        if(partial != null && !isSuppressed()) {
+            try {
+                Partial<Object> callback = partial;
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    callback.onPublished(value);
+                } finally {
+                    CallbackWatchdog.end(watch, callback);
+                }
+            } catch(Exception e) {
+                uncaught(e);
+            }
+        }
+    }
+
+    Task<V> getTask() {
+        return task;
+    }
+
+    @Override
+    public Async<V> onRetry(Retry callback) {
+        this.retry = callback;
         return this;
     }
 
+    void retried(int attempt, Exception exception) {
+        if(retry != null && !isSuppressed()) {
+            try {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    retry.onRetry(attempt, exception);
+                } finally {
+                    CallbackWatchdog.end(watch, retry);
+                }
+            } catch(Exception e) {
+                uncaught(e);
+            }
+        }
+    }
+
+    static void uncaught(Exception exception) {
+        Thread.UncaughtExceptionHandler ueh = Thread.currentThread().getUncaughtExceptionHandler();
+        if(ueh != null) {
+            ueh.uncaughtException(Thread.currentThread(), exception);
+        } else {
+            throw new AsyncWrappedException(exception);
+        }
+    }
+
     @FunctionalInterface
     public interface Cancel {
         void onCancelled() throws Exception;
@@ -229,4 +1037,275 @@ public class Async<V> implements AsyncRunnable, AsyncCallable<V> {
     public interface Complete {
         void onCompleted(Worker.State state) throws Exception;
     }
+
+    @FunctionalInterface
+    public interface Retry {
+        void onRetry(int attempt, Exception exception) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Progress {
+        void onProgress(long workDone, long totalWork) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Message {
+        void onMessage(String message) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Partial<P> {
+        void onPublished(P partial) throws Exception;
+    }
+
+    // キャッシュを埋める処理の単一実行のキーです。execute(key, callable) に同じキーを指定した別の処理と合流しないように、
+    // キャッシュごとに別の名前空間にします。
+    private static final class CacheFillKey {
+        private final AsyncCache cache;
+        private final Object key;
+
+        private CacheFillKey(AsyncCache cache, Object key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof CacheFillKey)) {
+                return false;
+            }
+            CacheFillKey other = (CacheFillKey)o;
+            return cache == other.cache && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(cache) + key.hashCode();
+        }
+    }
+
+    private abstract static class Continuation<T, R> implements Callable<R> {
+        private final Async<T> previous;
+
+        private Continuation(Async<T> previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public R call() throws Exception {
+            T value;
+            try {
+                value = previous.task.get();
+            } catch(CancellationException e) {
+                // タイムアウトによる失敗は、キャンセルではなく失敗として後続に伝えます。
+                // 正常に完了した場合は get() が値を返すので、タイムアウトと競合してもここには来ません。
+                TaskTimeoutException t = previous.task.getTimeoutFailure();
+                if(t == null) {
+                    throw e;
+                }
+                return recover(t);
+            } catch(ExecutionException e) {
+                Throwable t = e.getCause();
+                if(t instanceof Error) {
+                    throw (Error)t;
+                }
+                return recover((Exception)t);
+            }
+            return apply(value);
+        }
+
+        protected abstract R apply(T value) throws Exception;
+
+        protected R recover(Exception exception) throws Exception {
+            throw exception;
+        }
+    }
+
+    // ProgressCallable を実行するステージです。途中の結果の型を ProgressCallable と一致させるために、設定メソッドの戻り値の型だけを変えます。
+    private static final class ProgressAsync<V, P> extends Async<V> implements ProgressAsyncCallable<V, P> {
+
+        private ProgressAsync(Executor executor, Priority priority, ProgressCallable<V, P> callable) {
+            super(executor, priority, callable);
+        }
+
+        @Override
+        public ProgressAsync<V, P> tag(String name) {
+            super.tag(name);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> callbackOn(Executor executor) {
+            super.callbackOn(executor);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onCancelled(Cancel callback) {
+            super.onCancelled(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onSucceeded(AsyncCallable.Success<V> callback) {
+            super.onSucceeded(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onFailed(Failure callback) {
+            super.onFailed(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onCompleted(Complete callback) {
+            super.onCompleted(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> timeout(long timeout, TimeUnit unit) {
+            super.timeout(timeout, unit);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> deadline(long deadlineNanos) {
+            super.deadline(deadlineNanos);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> cancelOnTimeout() {
+            super.cancelOnTimeout();
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onRetry(Retry callback) {
+            super.onRetry(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onProgress(Progress callback) {
+            super.onProgress(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onMessage(Message callback) {
+            super.onMessage(callback);
+            return this;
+        }
+
+        @Override
+        public ProgressAsync<V, P> onPublished(Partial<P> callback) {
+            // Reporter<P> から届く値は P なので、このキャストで型が変わることはありません。
+            @SuppressWarnings("unchecked")
+            Partial<Object> c = (Partial<Object>)(Partial<?>)callback;
+            super.partial = c;
+            return this;
+        }
+    }
+
+    // Callable、LooseRunnable、ProgressCallable のいずれも、アダプターを介さずにこのタスクから直接呼び出します。
+    private static final class AsyncTask<V> extends Task<V> implements ProgressCallable.Reporter<Object> {
+        private final Async<V> async;
+        private final Object body;
+
+        private AsyncTask(Async<V> async, Object body) {
+            this.async = async;
+            this.body = body;
+        }
+
+        @Override
+        protected V call() throws Exception {
+            return invoke(body, this);
+        }
+
+        // 再試行のために、同じ処理をタスクの外で実行する Callable を返します。
+        // 進捗は最終的に結果を受け取る後段のタスクへ報告されます。
+        private Callable<V> newAttempt(final Async<V> owner) {
+            if(body instanceof Callable && !(body instanceof RetryStage)) {
+                @SuppressWarnings("unchecked")
+                Callable<V> callable = (Callable<V>)body;
+                return callable;
+            }
+            return new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    return invoke(body, (AsyncTask<V>)owner.task);
+                }
+            };
+        }
+
+        private static <V> V invoke(Object body, ProgressCallable.Reporter<Object> reporter) throws Exception {
+            if(body instanceof LooseRunnable) {
+                ((LooseRunnable)body).run();
+                return null;
+            } else if(body instanceof ProgressCallable) {
+                @SuppressWarnings("unchecked")
+                ProgressCallable<V, Object> callable = (ProgressCallable<V, Object>)body;
+                return callable.call(reporter);
+            }
+            @SuppressWarnings("unchecked")
+            Callable<V> callable = (Callable<V>)body;
+            return callable.call();
+        }
+
+        @Override
+        public void updateProgress(long workDone, long max) {
+            super.updateProgress(workDone, max);
+        }
+
+        @Override
+        public void updateMessage(String message) {
+            super.updateMessage(message);
+        }
+
+        @Override
+        public void publish(Object partial) {
+            publishPartial(partial);
+        }
+
+        @Override
+        protected void done() {
+            if(async.scope != null) {
+                async.scope.remove(async);
+            }
+            async.completed();
+        }
+
+        @Override
+        protected void progressUpdated() {
+            async.progressUpdated();
+        }
+
+        @Override
+        protected void messageUpdated() {
+            async.messageUpdated();
+        }
+
+        @Override
+        void partialPublished(Object partial) {
+            async.published(partial);
+        }
+
+        @Override
+        protected void cancelled() {
+            async.cancelled();
+        }
+
+        @Override
+        protected void succeeded() {
+            async.succeeded();
+        }
+
+        @Override
+        protected void failed() {
+            async.failed();
+        }
+    }
 }
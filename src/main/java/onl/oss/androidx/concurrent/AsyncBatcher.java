@@ -0,0 +1,167 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/** 投入された項目をまとめて、1回のバッチ処理で実行します。
+ * 項目数が maxItems に達するか、最初の項目の投入から maxDelay が経過すると、それまでの項目をまとめてバッチ処理に渡します。
+ * バッチ処理の結果は、項目ごとの AsyncCallable の onSucceeded に届けられます。
+ * バッチ処理が例外をスローした場合や、結果の数が項目の数と一致しない場合は、そのバッチのすべての項目の onFailed が呼び出されます。
+ * Error の場合は ExecutionException に包んで項目に届け、Error はそのままワーカースレッドにスローします。
+ *
+ * @param <I> 項目の型
+ * @param <O> 結果の型
+ */
+public class AsyncBatcher<I, O> {
+
+    public interface Batch<I, O> {
+        /** 項目をまとめて処理します。このメソッドはワーカースレッドで呼び出されます。
+         *
+         * @param items 項目のリスト
+         * @return items と同じ順序、同じ数の結果のリスト
+         * @throws Exception 処理に失敗した場合
+         */
+        List<O> call(List<I> items) throws Exception;
+    }
+
+    private final Executor executor;
+    private final int maxItems;
+    private final long maxDelayNanos;
+    private final Batch<I, O> batch;
+    private List<Item<I, O>> items;
+    private ScheduledFuture<?> timer;
+
+    public AsyncBatcher(int maxItems, long maxDelay, TimeUnit unit, Batch<I, O> batch) {
+        this(Async.getExecutor(), maxItems, maxDelay, unit, batch);
+    }
+
+    public AsyncBatcher(Executor executor, int maxItems, long maxDelay, TimeUnit unit, Batch<I, O> batch) {
+        if(maxItems < 1) {
+            throw new IllegalArgumentException("maxItems must be positive: " + maxItems);
+        }
+        this.executor = executor;
+        this.maxItems = maxItems;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.batch = batch;
+        this.items = new ArrayList<Item<I, O>>(maxItems);
+    }
+
+    public AsyncCallable<O> submit(I value) {
+        Item<I, O> item = new Item<I, O>(value);
+        item.async = Async.deferred(executor, item);
+        List<Item<I, O>> full = null;
+        synchronized(this) {
+            items.add(item);
+            if(items.size() >= maxItems) {
+                full = take();
+            } else if(items.size() == 1) {
+                timer = Scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if(full != null) {
+            dispatch(full);
+        }
+        return item.async;
+    }
+
+    /** 待機中の項目があれば、maxItems や maxDelay を待たずにバッチ処理を開始します。
+     */
+    public void flush() {
+        List<Item<I, O>> pending;
+        synchronized(this) {
+            if(items.isEmpty()) {
+                return;
+            }
+            pending = take();
+        }
+        dispatch(pending);
+    }
+
+    private List<Item<I, O>> take() {
+        List<Item<I, O>> pending = items;
+        items = new ArrayList<Item<I, O>>(maxItems);
+        if(timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        return pending;
+    }
+
+    private void dispatch(final List<Item<I, O>> pending) {
+        Async.submit(executor, Async.Priority.NORMAL, new Runnable() {
+            @Override
+            public void run() {
+                execute(pending);
+            }
+        });
+    }
+
+    // 項目ごとのタスクはこのスレッドでそのまま実行します。
+    // 各タスクの完了は TransitionQueue にまとめて積まれるので、メインスレッドへの投稿はバッチごとにほぼ1回になります。
+    private void execute(List<Item<I, O>> pending) {
+        List<Item<I, O>> live = new ArrayList<Item<I, O>>(pending.size());
+        List<I> values = new ArrayList<I>(pending.size());
+        for(Item<I, O> item : pending) {
+            if(!item.async.getTask().isCancelled()) {
+                live.add(item);
+                values.add(item.value);
+            }
+        }
+        if(live.isEmpty()) {
+            return;
+        }
+        List<O> results = null;
+        Exception exception = null;
+        try {
+            results = batch.call(values);
+            if(results == null || results.size() != live.size()) {
+                throw new IllegalStateException("Batch returned " + (results == null ? "null" : results.size() + " results") + " for " + live.size() + " items");
+            }
+        } catch(Exception e) {
+            exception = e;
+        } catch(Error e) {
+            exception = new ExecutionException(e);
+            throw e;
+        } finally {
+            // 結果を受け取れなかった項目も必ず完了させます。完了しない項目があると、呼び出し元が待ち続けてしまいます。
+            for(int i = 0; i < live.size(); i++) {
+                Item<I, O> item = live.get(i);
+                if(exception != null) {
+                    item.exception = exception;
+                } else {
+                    item.result = results.get(i);
+                }
+                item.async.getTask().run();
+            }
+        }
+    }
+
+    private static final class Item<I, O> implements Callable<O> {
+        private final I value;
+        private Async<O> async;
+        private O result;
+        private Exception exception;
+
+        private Item(I value) {
+            this.value = value;
+        }
+
+        @Override
+        public O call() throws Exception {
+            if(exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package onl.oss.androidx.concurrent;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AsyncCache implements ComponentCallbacks2 {
+
+    public static final long DEFAULT_MAX_WEIGHT = 256;
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+    private final Weigher weigher;
+    private long maxWeight;
+    private long weight;
+    private volatile boolean staleWhileRevalidate;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /** 最大 maxWeight 個の結果を保持するキャッシュを作成します。
+     *
+     * @param maxWeight 保持する結果の最大数
+     */
+    public AsyncCache(long maxWeight) {
+        this(maxWeight, null);
+    }
+
+    /** 重みの合計が最大 maxWeight になるまで結果を保持するキャッシュを作成します。
+     * 重みを超えた場合は、最も長く使用されていない結果から破棄されます。
+     *
+     * @param maxWeight 重みの合計の最大値
+     * @param weigher 結果の重みを計算する関数。null の場合、すべての結果の重みは 1 になります。
+     */
+    public AsyncCache(long maxWeight, Weigher weigher) {
+        if(maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /** 有効期限の切れた結果を、新しい結果を取得するまでの間そのまま返すかどうかを指定します。
+     * true の場合、有効期限の切れた結果はすぐに onSucceeded に届けられ、バックグラウンドで新しい結果が取得されます。
+     *
+     * @param staleWhileRevalidate 有効期限の切れた結果を返す場合は true
+     * @return このオブジェクト
+     */
+    public AsyncCache setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        return this;
+    }
+
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    public synchronized void invalidate(Object key) {
+        Entry entry = entries.remove(key);
+        if(entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized void setMaxWeight(long maxWeight) {
+        if(maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.maxWeight = maxWeight;
+        trimToWeight(maxWeight);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    // 見つかった場合はエントリーを返します。有効期限が切れていて再検証しない場合は破棄して null を返します。
+    synchronized Entry lookup(Object key) {
+        Entry entry = entries.get(key);
+        if(entry != null) {
+            if(!entry.isExpired()) {
+                hitCount.incrementAndGet();
+                return entry;
+            }
+            if(staleWhileRevalidate) {
+                hitCount.incrementAndGet();
+                return entry;
+            }
+            entries.remove(key);
+            weight -= entry.weight;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    synchronized void put(Object key, Object value, long ttlNanos) {
+        int w = (weigher != null) ? weigher.weigh(key, value) : 1;
+        if(w < 0) {
+            throw new IllegalStateException("negative weight: " + w);
+        }
+        Entry previous = entries.put(key, new Entry(value, Scheduler.nanoTime() + ttlNanos, w));
+        if(previous != null) {
+            weight -= previous.weight;
+        }
+        weight += w;
+        trimToWeight(maxWeight);
+    }
+
+    private synchronized void trimToWeight(long target) {
+        Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator();
+        while(weight > target && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            it.remove();
+            weight -= entry.weight;
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if(level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            synchronized(this) {
+                evictionCount.addAndGet(entries.size());
+                invalidateAll();
+            }
+        } else if(level >= TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_LOW) {
+            synchronized(this) {
+                trimToWeight(weight / 2);
+            }
+        } else if(level == TRIM_MEMORY_RUNNING_MODERATE) {
+            synchronized(this) {
+                trimToWeight(weight * 3 / 4);
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @FunctionalInterface
+    public interface Weigher {
+        int weigh(Object key, Object value);
+    }
+
+    static final class Entry {
+        final Object value;
+        final long expiresAtNanos;
+        final int weight;
+
+        private Entry(Object value, long expiresAtNanos, int weight) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+            this.weight = weight;
+        }
+
+        boolean isExpired() {
+            return Scheduler.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -1,9 +1,32 @@
 package onl.oss.androidx.concurrent;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 public interface AsyncCallable<V> {
 
     void cancel();
 
+    /** 計測やトレースで使用する名前を設定します。後から追加するステージは、この名前を引き継ぎます。
+     *
+     * @param name 名前
+     * @return このオブジェクト
+     */
+    AsyncCallable<V> tag(String name);
+
+    /** コールバックを呼び出すエグゼキューターを指定します。既定ではメインスレッドで呼び出されます。
+     * Async.DIRECT を指定するとワーカースレッドでそのまま呼び出され、LooperExecutor を指定するとそのルーパーのスレッドで呼び出されます。
+     * 後から追加するステージは、この指定を引き継ぎます。
+     * 既に投入された処理では、指定する前の遷移が既定のスレッドで配送されることがあります。
+     * 完了した後に設定したコールバックは、DIRECT の場合は設定したスレッドで呼び出されます。
+     * 投入する前に確定させる場合は Async.prepare() と start() を使用してください。
+     *
+     * @param executor コールバックを呼び出すエグゼキューター
+     * @return このオブジェクト
+     */
+    AsyncCallable<V> callbackOn(Executor executor);
+
     AsyncCallable<V> onCancelled(Async.Cancel callback);
 
     AsyncCallable<V> onSucceeded(Success<V> callback);
@@ -12,8 +35,86 @@ public interface AsyncCallable<V> {
 
     AsyncCallable<V> onCompleted(Async.Complete callback);
 
+    /** 処理の開始から指定した時間が経過しても完了しない場合、処理を中断して TaskTimeoutException で失敗させます。
+     *
+     * @param timeout タイムアウトまでの時間
+     * @param unit timeout の単位
+     * @return このオブジェクト
+     */
+    AsyncCallable<V> timeout(long timeout, TimeUnit unit);
+
+    /** 指定した時刻までに完了しない場合、処理を中断して TaskTimeoutException で失敗させます。
+     *
+     * @param deadlineNanos System.nanoTime() を基準とした期限。VirtualTimeDispatcher を指定している間は、その now() を基準とします
+     * @return このオブジェクト
+     */
+    AsyncCallable<V> deadline(long deadlineNanos);
+
+    /** タイムアウトした場合に、失敗ではなくキャンセルとして扱います。
+     *
+     * @return このオブジェクト
+     */
+    AsyncCallable<V> cancelOnTimeout();
+
+    /** 処理が失敗した場合に、ポリシーに従って待機時間をおいて再試行する後続のステージを追加します。
+     * 待機中はワーカースレッドを占有しません。onFailed は最後の試行が失敗した後にだけ呼び出されます。
+     *
+     * @param policy リトライ・ポリシー
+     * @return 後続のステージ
+     * @throws IllegalStateException このステージに完了のコールバックが設定されている場合、または既に後続のステージがある場合
+     */
+    AsyncCallable<V> retry(RetryPolicy policy);
+
+    AsyncCallable<V> onRetry(Async.Retry callback);
+
+    AsyncCallable<V> onProgress(Async.Progress callback);
+
+    AsyncCallable<V> onMessage(Async.Message callback);
+
+    /** 結果をワーカースレッドで変換する後続のステージを追加します。
+     * 変換は前段と同じワーカースレッドで続けて実行され、メインスレッドを経由しません。
+     * 後続のステージを追加したステージは中間ステージになり、状態の遷移をメインスレッドに投稿しません。
+     * 中間ステージには完了のコールバック（onSucceeded、onFailed、onCancelled、onCompleted）を設定できないので、最後のステージにだけ設定してください。
+     * 1つのステージから追加できる後続のステージは1つだけで、分岐はできません。retry、flatMap、recover、onExecutor も同じです。
+     *
+     * @param function 結果を変換する関数
+     * @return 後続のステージ
+     * @throws IllegalStateException このステージに完了のコールバックが設定されている場合、または既に後続のステージがある場合
+     */
+    <R> AsyncCallable<R> map(Function<? super V, ? extends R> function);
+
+    /** 結果から次の処理を作成し、それを実行する後続のステージを追加します。
+     * 次の処理はエグゼキューターに改めて投入されます。
+     *
+     * @param function 結果から次の処理を作成する関数
+     * @return 後続のステージ
+     * @throws IllegalStateException このステージに完了のコールバックが設定されている場合、または既に後続のステージがある場合
+     */
+    <R> AsyncCallable<R> flatMap(Function<? super V, ? extends Callable<? extends R>> function);
+
+    /** 前段が失敗した場合に、例外から代わりの結果を作成する後続のステージを追加します。
+     *
+     * @param function 例外から代わりの結果を作成する関数
+     * @return 後続のステージ
+     * @throws IllegalStateException このステージに完了のコールバックが設定されている場合、または既に後続のステージがある場合
+     */
+    AsyncCallable<V> recover(Function<? super Exception, ? extends V> function);
+
+    /** 以降のステージを指定したエグゼキューターで実行します。
+     *
+     * @param executor 以降のステージを実行するエグゼキューター
+     * @return 後続のステージ
+     * @throws IllegalStateException このステージに完了のコールバックが設定されている場合、または既に後続のステージがある場合
+     */
+    AsyncCallable<V> onExecutor(Executor executor);
+
     @FunctionalInterface
     interface Success<T> {
         void onSucceeded(T result) throws Exception;
     }
+
+    @FunctionalInterface
+    interface Function<T, R> {
+        R apply(T value) throws Exception;
+    }
 }
@@ -0,0 +1,205 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** タスクの名前（Task.getTag()）ごとに、キューでの待ち時間、実行時間、コールバックの時間を集計する TaskListener です。
+ * 集計はロックを使用せずに行われ、どのスレッドからでも p50 や p99 を読み取ることができます。
+ * 名前のないタスクは空文字列の名前で集計されます。
+ */
+public class AsyncMetrics implements TaskListener {
+
+    private static final String UNTAGGED = "";
+
+    /** 新しい AsyncMetrics を作成して、Async.setTaskListener() で登録します。
+     *
+     * @return 登録した AsyncMetrics
+     */
+    public static AsyncMetrics install() {
+        AsyncMetrics metrics = new AsyncMetrics();
+        Async.setTaskListener(metrics);
+        return metrics;
+    }
+
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+    public Set<String> getTags() {
+        return Collections.unmodifiableSet(stats.keySet());
+    }
+
+    /** 指定した名前のタスクの集計を返します。まだ記録がない場合は null を返します。
+     *
+     * @param tag タスクの名前。null の場合は名前のないタスク
+     * @return 集計
+     */
+    public Stats getStats(String tag) {
+        return stats.get(tag != null ? tag : UNTAGGED);
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private Stats obtain(Task<?> task) {
+        String tag = task.getTag();
+        if(tag == null) {
+            tag = UNTAGGED;
+        }
+        Stats s = stats.get(tag);
+        if(s == null) {
+            Stats created = new Stats();
+            Stats existing = stats.putIfAbsent(tag, created);
+            s = (existing != null) ? existing : created;
+        }
+        return s;
+    }
+
+    @Override
+    public void onSubmitted(Task<?> task, long nanos) {
+    }
+
+    @Override
+    public void onStarted(Task<?> task, long nanos) {
+        long submitted = task.getSubmitNanos();
+        if(submitted != 0) {
+            obtain(task).queueWait.record(nanos - submitted);
+        }
+    }
+
+    @Override
+    public void onFinished(Task<?> task, long nanos) {
+        obtain(task).runTime.record(nanos - task.getStartNanos());
+    }
+
+    @Override
+    public void onDeliveryStarted(Task<?> task, long nanos) {
+    }
+
+    @Override
+    public void onDeliveryFinished(Task<?> task, long nanos) {
+        obtain(task).callbackTime.record(nanos - task.getDeliveryNanos());
+    }
+
+    public static final class Stats {
+        private final Histogram queueWait = new Histogram();
+        private final Histogram runTime = new Histogram();
+        private final Histogram callbackTime = new Histogram();
+
+        private Stats() {
+        }
+
+        /** 投入されてからワーカースレッドで開始されるまでの時間です。 */
+        public Histogram getQueueWait() {
+            return queueWait;
+        }
+
+        /** call() の実行時間です。 */
+        public Histogram getRunTime() {
+            return runTime;
+        }
+
+        /** コールバック用のスレッドで、終了状態のコールバックに要した時間です。 */
+        public Histogram getCallbackTime() {
+            return callbackTime;
+        }
+    }
+
+    /** ナノ秒単位の値のヒストグラムです。
+     * 2 のべき乗ごとの区間をさらに 16 分割したバケットに記録するので、パーセンタイルの誤差は約 6% 以内です。
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram() {
+        }
+
+        void record(long nanos) {
+            if(nanos < 0) {
+                nanos = 0;
+            }
+            buckets.incrementAndGet(index(nanos));
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+            long m;
+            while(nanos > (m = max.get())) {
+                if(max.compareAndSet(m, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.get();
+            return (n == 0) ? 0.0 : (double)sum.get() / n;
+        }
+
+        public long getP50() {
+            return getPercentile(0.50);
+        }
+
+        public long getP99() {
+            return getPercentile(0.99);
+        }
+
+        /** 指定したパーセンタイルの近似値をナノ秒で返します。記録がない場合は 0 を返します。
+         *
+         * @param percentile 0.0 から 1.0 までのパーセンタイル
+         * @return パーセンタイルの近似値
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            for(int i = 0; i < BUCKET_COUNT; i++) {
+                total += buckets.get(i);
+            }
+            if(total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long)Math.ceil(percentile * total));
+            long seen = 0;
+            for(int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if(seen >= rank) {
+                    return Math.min(midpoint(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int index(long value) {
+            if(value < SUB_COUNT) {
+                return (int)value;
+            }
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+            int sub = (int)(value >>> shift) & (SUB_COUNT - 1);
+            return (shift + 1) * SUB_COUNT + sub;
+        }
+
+        private static long midpoint(int index) {
+            if(index < SUB_COUNT) {
+                return index;
+            }
+            int shift = index / SUB_COUNT - 1;
+            long lower = (long)(SUB_COUNT + index % SUB_COUNT) << shift;
+            return lower + ((1L << shift) >>> 1);
+        }
+    }
+}
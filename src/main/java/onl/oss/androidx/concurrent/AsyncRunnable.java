@@ -1,9 +1,31 @@
 package onl.oss.androidx.concurrent;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 public interface AsyncRunnable {
 
     void cancel();
 
+    /** 計測やトレースで使用する名前を設定します。後から追加するステージは、この名前を引き継ぎます。
+     *
+     * @param name 名前
+     * @return このオブジェクト
+     */
+    AsyncRunnable tag(String name);
+
+    /** コールバックを呼び出すエグゼキューターを指定します。既定ではメインスレッドで呼び出されます。
+     * Async.DIRECT を指定するとワーカースレッドでそのまま呼び出され、LooperExecutor を指定するとそのルーパーのスレッドで呼び出されます。
+     * 後から追加するステージは、この指定を引き継ぎます。
+     * 既に投入された処理では、指定する前の遷移が既定のスレッドで配送されることがあります。
+     * 完了した後に設定したコールバックは、DIRECT の場合は設定したスレッドで呼び出されます。
+     * 投入する前に確定させる場合は Async.prepare() と start() を使用してください。
+     *
+     * @param executor コールバックを呼び出すエグゼキューター
+     * @return このオブジェクト
+     */
+    AsyncRunnable callbackOn(Executor executor);
+
     AsyncRunnable onCancelled(Async.Cancel callback);
 
     AsyncRunnable onSucceeded(Success callback);
@@ -12,6 +34,39 @@ public interface AsyncRunnable {
 
     AsyncRunnable onCompleted(Async.Complete callback);
 
+    /** 処理の開始から指定した時間が経過しても完了しない場合、処理を中断して TaskTimeoutException で失敗させます。
+     *
+     * @param timeout タイムアウトまでの時間
+     * @param unit timeout の単位
+     * @return このオブジェクト
+     */
+    AsyncRunnable timeout(long timeout, TimeUnit unit);
+
+    /** 指定した時刻までに完了しない場合、処理を中断して TaskTimeoutException で失敗させます。
+     *
+     * @param deadlineNanos System.nanoTime() を基準とした期限。VirtualTimeDispatcher を指定している間は、その now() を基準とします
+     * @return このオブジェクト
+     */
+    AsyncRunnable deadline(long deadlineNanos);
+
+    /** タイムアウトした場合に、失敗ではなくキャンセルとして扱います。
+     *
+     * @return このオブジェクト
+     */
+    AsyncRunnable cancelOnTimeout();
+
+    /** 処理が失敗した場合に、ポリシーに従って待機時間をおいて再試行する後続のステージを追加します。
+     * 待機中はワーカースレッドを占有しません。onFailed は最後の試行が失敗した後にだけ呼び出されます。
+     * 完了のコールバックは、このメソッドが返した後続のステージに設定してください。
+     *
+     * @param policy リトライ・ポリシー
+     * @return 後続のステージ
+     * @throws IllegalStateException このステージに完了のコールバックが設定されている場合、または既に後続のステージがある場合
+     */
+    AsyncRunnable retry(RetryPolicy policy);
+
+    AsyncRunnable onRetry(Async.Retry callback);
+
     @FunctionalInterface
     interface Success {
         void onSucceeded() throws Exception;
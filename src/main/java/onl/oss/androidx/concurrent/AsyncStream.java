@@ -0,0 +1,227 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AsyncStream<T> implements Cancellable {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    private final BlockingQueue<T> buffer;
+    private final int maxBatchSize;
+    private final AtomicBoolean drainPosted = new AtomicBoolean();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private final StreamTask<T> task;
+    private boolean terminated;
+    private Next<T> next;
+    private Async.Cancel cancel;
+    private Async.Failure failure;
+    private Async.Complete complete;
+
+    AsyncStream(StreamCallable<T> producer, int capacity, int maxBatchSize) {
+        if(maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.buffer = new ArrayBlockingQueue<T>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.task = new StreamTask<T>(this, producer);
+    }
+
+    Task<Void> getTask() {
+        return task;
+    }
+
+    @Override
+    public void cancel() {
+        task.cancel(true);
+    }
+
+    public AsyncStream<T> onNext(Next<T> callback) {
+        this.next = callback;
+        return this;
+    }
+
+    public AsyncStream<T> onCancelled(Async.Cancel callback) {
+        this.cancel = callback;
+        return this;
+    }
+
+    public AsyncStream<T> onFailed(Async.Failure callback) {
+        this.failure = callback;
+        return this;
+    }
+
+    public AsyncStream<T> onCompleted(Async.Complete callback) {
+        this.complete = callback;
+        return this;
+    }
+
+    private void emit(T item) throws InterruptedException {
+        buffer.put(item);
+        if(drainPosted.compareAndSet(false, true)) {
+            MainThread.post(drain);
+        }
+    }
+
+    // 1回の投稿で最大 maxBatchSize 個の要素を届け、残りがあれば次のループで続けます。
+    private void drain() {
+        drainPosted.set(false);
+        if(terminated) {
+            return;
+        }
+        List<T> batch = new ArrayList<T>(Math.min(maxBatchSize, buffer.size()));
+        buffer.drainTo(batch, maxBatchSize);
+        if(!batch.isEmpty()) {
+            deliver(batch);
+        }
+        if(!buffer.isEmpty() && drainPosted.compareAndSet(false, true)) {
+            MainThread.post(drain);
+        }
+    }
+
+    private void flush() {
+        List<T> batch = new ArrayList<T>(Math.min(maxBatchSize, buffer.size()));
+        while(buffer.drainTo(batch, maxBatchSize) > 0) {
+            deliver(batch);
+            batch = new ArrayList<T>(Math.min(maxBatchSize, buffer.size()));
+        }
+    }
+
+    private void deliver(List<T> batch) {
+        if(next != null) {
+            try {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    next.onNext(batch);
+                } finally {
+                    CallbackWatchdog.end(watch, next);
+                }
+            } catch(Exception e) {
+                Async.uncaught(e);
+            }
+        }
+    }
+
+    private void succeeded() {
+        flush();
+        terminated = true;
+        completed(Worker.State.SUCCEEDED, null);
+    }
+
+    private void failed() {
+        Throwable t = task.getException();
+        flush();
+        terminated = true;
+        if(t instanceof Error) {
+            throw (Error)t;
+        }
+        Exception exception = null;
+        try {
+            if(failure != null) {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    failure.onFailed((Exception)t);
+                } finally {
+                    CallbackWatchdog.end(watch, failure);
+                }
+            } else {
+                exception = (Exception)t;
+            }
+        } catch(Exception e) {
+            exception = e;
+        }
+        completed(Worker.State.FAILED, exception);
+    }
+
+    private void cancelled() {
+        terminated = true;
+        buffer.clear();
+        Exception exception = null;
+        try {
+            if(cancel != null) {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    cancel.onCancelled();
+                } finally {
+                    CallbackWatchdog.end(watch, cancel);
+                }
+            }
+        } catch(Exception e) {
+            exception = e;
+        }
+        completed(Worker.State.CANCELLED, exception);
+    }
+
+    private void completed(Worker.State state, Exception exception) {
+        if(complete != null) {
+            try {
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    complete.onCompleted(state);
+                } finally {
+                    CallbackWatchdog.end(watch, complete);
+                }
+            } catch(Exception e) {
+                if(exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if(exception != null) {
+            Async.uncaught(exception);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Next<T> {
+        void onNext(List<T> items) throws Exception;
+    }
+
+    private static final class StreamTask<T> extends Task<Void> implements StreamCallable.Emitter<T> {
+        private final AsyncStream<T> stream;
+        private final StreamCallable<T> producer;
+
+        private StreamTask(AsyncStream<T> stream, StreamCallable<T> producer) {
+            this.stream = stream;
+            this.producer = producer;
+        }
+
+        @Override
+        protected Void call() throws Exception {
+            producer.call(this);
+            return null;
+        }
+
+        @Override
+        public void emit(T item) throws InterruptedException {
+            if(isCancelled()) {
+                throw new InterruptedException();
+            }
+            stream.emit(item);
+        }
+
+        @Override
+        protected void succeeded() {
+            stream.succeeded();
+        }
+
+        @Override
+        protected void failed() {
+            stream.failed();
+        }
+
+        @Override
+        protected void cancelled() {
+            stream.cancelled();
+        }
+    }
+}
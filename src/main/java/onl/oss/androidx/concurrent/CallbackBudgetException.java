@@ -0,0 +1,12 @@
+package onl.oss.androidx.concurrent;
+
+/** 厳格モードの CallbackWatchdog が、予算を超えたコールバックの後でスローする例外です。
+ * スタックには、予算を超えた時点のコールバックのスタックが設定されます。
+ */
+@SuppressWarnings("serial")
+public class CallbackBudgetException extends RuntimeException {
+
+    public CallbackBudgetException(String message) {
+        super(message);
+    }
+}
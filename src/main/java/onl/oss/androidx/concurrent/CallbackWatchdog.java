@@ -0,0 +1,141 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/** コールバック（onSucceeded など）の実行時間を監視し、予算を超えたものを報告するウォッチドッグです。
+ * install() で有効になります。予算を超えたコールバックは、そのクラスと、予算を超えた時点のスタックとともにリスナーに報告されます。
+ * 厳格モードでは、予算を超えたコールバックの後で CallbackBudgetException をスローします。
+ * ライブラリからはアプリのビルドの種類がわからないので、厳格モードは setStrict(BuildConfig.DEBUG) のように指定してください。
+ * また、実行時間の予算を指定すると、call() が予算を超えても終わらないタスクを実行中に報告します。
+ */
+public class CallbackWatchdog {
+
+    static volatile CallbackWatchdog installed;
+
+    public interface Listener {
+        /** コールバックが予算を超えたときに、コールバックを呼び出したスレッドで呼び出されます。
+         *
+         * @param callback 予算を超えたコールバック
+         * @param elapsedNanos コールバックの実行時間
+         * @param stack 予算を超えた時点のスタック。取得できなかった場合は null
+         */
+        void onCallbackOverBudget(Object callback, long elapsedNanos, StackTraceElement[] stack);
+
+        /** call() が実行時間の予算を超えても終わらないときに、スケジューラーのスレッドで呼び出されます。
+         *
+         * @param task 予算を超えたタスク
+         * @param elapsedNanos call() を開始してからの時間
+         * @param stack ワーカースレッドのスタック
+         */
+        void onTaskOverBudget(Task<?> task, long elapsedNanos, StackTraceElement[] stack);
+    }
+
+    private final long budgetNanos;
+    private volatile long runBudgetNanos = -1;
+    private volatile boolean strict;
+    private volatile Listener listener;
+
+    public CallbackWatchdog(long budget, TimeUnit unit) {
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    public CallbackWatchdog setRunBudget(long budget, TimeUnit unit) {
+        this.runBudgetNanos = unit.toNanos(budget);
+        return this;
+    }
+
+    public CallbackWatchdog setStrict(boolean strict) {
+        this.strict = strict;
+        return this;
+    }
+
+    public CallbackWatchdog setListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public CallbackWatchdog install() {
+        installed = this;
+        return this;
+    }
+
+    public static void uninstall() {
+        installed = null;
+    }
+
+    // ウォッチドッグがない場合のコストは volatile フィールドの読み取りだけです。
+    static Watch begin() {
+        CallbackWatchdog w = installed;
+        return (w != null) ? w.new Watch() : null;
+    }
+
+    static void end(Watch watch, Object callback) {
+        if(watch != null) {
+            watch.end(callback);
+        }
+    }
+
+    static ScheduledFuture<?> watchTask(final Task<?> task) {
+        CallbackWatchdog w = installed;
+        if(w == null || w.runBudgetNanos < 0 || w.listener == null) {
+            return null;
+        }
+        final CallbackWatchdog watchdog = w;
+        final Thread thread = Thread.currentThread();
+        final long start = System.nanoTime();
+        return Scheduler.scheduleRealTime(new Runnable() {
+            @Override
+            public void run() {
+                Listener l = watchdog.listener;
+                if(l != null && !task.isDone()) {
+                    l.onTaskOverBudget(task, System.nanoTime() - start, thread.getStackTrace());
+                }
+            }
+        }, w.runBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    final class Watch implements Runnable {
+        private final Thread thread = Thread.currentThread();
+        private final long start = System.nanoTime();
+        private final ScheduledFuture<?> timer;
+        private volatile StackTraceElement[] stack;
+
+        private Watch() {
+            // 予算を超えた時点でまだ実行中であれば、どこで時間がかかっているかを記録しておきます。
+            timer = Scheduler.scheduleRealTime(this, budgetNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            stack = thread.getStackTrace();
+        }
+
+        private void end(Object callback) {
+            boolean sampling = !timer.cancel(false);
+            long elapsed = System.nanoTime() - start;
+            if(elapsed <= budgetNanos) {
+                return;
+            }
+            if(sampling) {
+                // スタックの取得が始まっている場合は、その完了を待ちます。
+                try {
+                    timer.get();
+                } catch(Exception ignore) {
+                }
+            }
+            Listener l = listener;
+            if(l != null) {
+                l.onCallbackOverBudget(callback, elapsed, stack);
+            }
+            if(strict) {
+                CallbackBudgetException e = new CallbackBudgetException(callback.getClass().getName()
+                        + " took " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms (budget " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms)");
+                if(stack != null) {
+                    e.setStackTrace(stack);
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package onl.oss.androidx.concurrent;
+
+interface Cancellable {
+    void cancel();
+}
@@ -0,0 +1,212 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 複数の処理を並列に実行し、その結果を1つのタスクにまとめます。
+// 各処理はメインスレッドに何も投稿しません。結果が確定した時点で、最後に完了したワーカースレッドが集約タスクを実行します。
+abstract class Join<V, R> implements Callable<R>, Cancellable {
+
+    final List<Member> members;
+    private final AtomicInteger remaining;
+    private final AtomicBoolean decided = new AtomicBoolean();
+    private volatile Member winner;
+    private volatile RejectedExecutionException rejected;
+    private Runnable aggregate;
+
+    Join(Collection<? extends Callable<V>> callables) {
+        members = new ArrayList<Member>(callables.size());
+        for(Callable<V> callable : callables) {
+            members.add(new Member(callable));
+        }
+        remaining = new AtomicInteger(members.size());
+    }
+
+    final void start(Runnable aggregate, Executor executor) {
+        this.aggregate = aggregate;
+        if(members.isEmpty()) {
+            Async.submit(executor, Async.Priority.NORMAL, aggregate);
+            return;
+        }
+        for(Member member : members) {
+            try {
+                Async.submit(executor, Async.Priority.NORMAL, member);
+            } catch(RejectedExecutionException e) {
+                // 投入済みの処理をキャンセルし、集約タスクをこの例外で失敗させます。
+                rejected = e;
+                decide(null);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        for(Member member : members) {
+            member.cancel(true);
+        }
+    }
+
+    protected abstract void memberDone(Member member);
+
+    final boolean countDown() {
+        return remaining.decrementAndGet() == 0;
+    }
+
+    final void decide(Member member) {
+        if(decided.compareAndSet(false, true)) {
+            winner = member;
+            for(Member m : members) {
+                if(m != member) {
+                    m.cancel(true);
+                }
+            }
+            aggregate.run();
+        }
+    }
+
+    final Member getWinner() {
+        RejectedExecutionException e = rejected;
+        if(e != null) {
+            throw e;
+        }
+        return winner;
+    }
+
+    final V getValue(Member member) throws Exception {
+        try {
+            return member.get();
+        } catch(ExecutionException e) {
+            Throwable t = e.getCause();
+            if(t instanceof Error) {
+                throw (Error)t;
+            }
+            throw (Exception)t;
+        }
+    }
+
+    final class Member extends FutureTask<V> {
+        private Member(Callable<V> callable) {
+            super(callable);
+        }
+
+        boolean isSucceeded() {
+            if(!isDone() || isCancelled()) {
+                return false;
+            }
+            try {
+                get();
+                return true;
+            } catch(Exception e) {
+                return false;
+            }
+        }
+
+        @Override
+        protected void done() {
+            memberDone(this);
+        }
+    }
+
+    static final class All<V> extends Join<V, List<V>> {
+        All(Collection<? extends Callable<V>> callables) {
+            super(callables);
+        }
+
+        @Override
+        protected void memberDone(Member member) {
+            // 1つでも失敗した時点で残りをキャンセルします。
+            if(!member.isSucceeded()) {
+                decide(member);
+            } else if(countDown()) {
+                decide(null);
+            }
+        }
+
+        @Override
+        public List<V> call() throws Exception {
+            Member failed = getWinner();
+            if(failed != null) {
+                getValue(failed);
+            }
+            List<V> values = new ArrayList<V>(members.size());
+            for(Member member : members) {
+                V value = getValue(member);
+                values.add(value);
+            }
+            return values;
+        }
+    }
+
+    static final class Any<V> extends Join<V, V> {
+        Any(Collection<? extends Callable<V>> callables) {
+            super(callables);
+        }
+
+        @Override
+        protected void memberDone(Member member) {
+            decide(member);
+        }
+
+        @Override
+        public V call() throws Exception {
+            Member winner = getWinner();
+            if(winner == null) {
+                throw new NoSuchElementException();
+            }
+            return getValue(winner);
+        }
+    }
+
+    static final class FirstSuccessful<V> extends Join<V, V> {
+        FirstSuccessful(Collection<? extends Callable<V>> callables) {
+            super(callables);
+        }
+
+        @Override
+        protected void memberDone(Member member) {
+            if(member.isSucceeded()) {
+                decide(member);
+            } else if(countDown()) {
+                decide(member);
+            }
+        }
+
+        @Override
+        public V call() throws Exception {
+            Member winner = getWinner();
+            if(winner == null) {
+                throw new NoSuchElementException();
+            }
+            if(winner.isSucceeded()) {
+                return getValue(winner);
+            }
+            // すべて失敗した場合は、最後に失敗した例外に他の例外を付加してスローします。
+            Exception exception = null;
+            try {
+                getValue(winner);
+            } catch(Exception e) {
+                exception = e;
+            }
+            for(Member member : members) {
+                if(member != winner && !member.isCancelled()) {
+                    try {
+                        getValue(member);
+                    } catch(Exception e) {
+                        exception.addSuppressed(e);
+                    }
+                }
+            }
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** 最後に投入された処理の結果だけを受け取るためのヘルパーです。
+ * submit() を呼び出すと、それまでに投入された処理は実行前であれば破棄され、実行中であれば cancel(true) で中断されます。
+ * 古い処理が新しい処理より先に完了した場合でも、onSucceeded や onFailed に届くのは最新の処理の結果だけです。
+ * window を指定した場合、処理は最後の submit() から window が経過するまで実行されません。
+ *
+ * @param <V> 結果の型
+ */
+public class LatestAsync<V> {
+
+    private final Executor executor;
+    private final long windowNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private Async<V> current;
+    private ScheduledFuture<?> timer;
+    private volatile AsyncCallable.Success<V> success;
+    private volatile Async.Failure failure;
+
+    public LatestAsync() {
+        this(0, TimeUnit.MILLISECONDS);
+    }
+
+    public LatestAsync(long window, TimeUnit unit) {
+        this(Async.getExecutor(), window, unit);
+    }
+
+    public LatestAsync(Executor executor, long window, TimeUnit unit) {
+        this.executor = executor;
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    public LatestAsync<V> onSucceeded(AsyncCallable.Success<V> callback) {
+        this.success = callback;
+        return this;
+    }
+
+    public LatestAsync<V> onFailed(Async.Failure callback) {
+        this.failure = callback;
+        return this;
+    }
+
+    /** 処理を投入し、それまでに投入された処理を破棄します。
+     *
+     * @param callable 処理
+     */
+    public void submit(Callable<V> callable) {
+        final long gen = generation.incrementAndGet();
+        final Async<V> async = Async.deferred(executor, callable);
+        async.onSucceeded(new AsyncCallable.Success<V>() {
+            @Override
+            public void onSucceeded(V result) throws Exception {
+                AsyncCallable.Success<V> callback = success;
+                if(gen == generation.get() && callback != null) {
+                    callback.onSucceeded(result);
+                }
+            }
+        });
+        async.onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) throws Exception {
+                if(gen != generation.get()) {
+                    return;
+                }
+                Async.Failure callback = failure;
+                if(callback != null) {
+                    callback.onFailed(exception);
+                } else {
+                    throw exception;
+                }
+            }
+        });
+
+        Async<V> previous;
+        ScheduledFuture<?> previousTimer;
+        synchronized(this) {
+            previous = current;
+            previousTimer = timer;
+            current = async;
+            timer = null;
+            if(windowNanos > 0) {
+                timer = Scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        Async.submit(executor, Async.Priority.NORMAL, async.getTask());
+                    }
+                }, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if(previousTimer != null) {
+            previousTimer.cancel(false);
+        }
+        if(previous != null) {
+            previous.cancel();
+        }
+        if(windowNanos <= 0) {
+            Async.submit(executor, Async.Priority.NORMAL, async.getTask());
+        }
+    }
+
+    /** 投入済みの処理を破棄します。以降、それらの結果はコールバックに届きません。
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        Async<V> previous;
+        ScheduledFuture<?> previousTimer;
+        synchronized(this) {
+            previous = current;
+            previousTimer = timer;
+            current = null;
+            timer = null;
+        }
+        if(previousTimer != null) {
+            previousTimer.cancel(false);
+        }
+        if(previous != null) {
+            previous.cancel();
+        }
+    }
+}
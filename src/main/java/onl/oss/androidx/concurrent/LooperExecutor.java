@@ -0,0 +1,34 @@
+package onl.oss.androidx.concurrent;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+/** 指定したルーパーのスレッドでコマンドを実行するエグゼキューターです。
+ * callbackOn() に指定すると、そのルーパーのスレッドからの cancel() や状態の遷移は投稿せずにその場で処理されます。
+ */
+public class LooperExecutor implements ThreadBoundExecutor {
+
+    private final Looper looper;
+    private final Handler handler;
+
+    public LooperExecutor(@NonNull Looper looper) {
+        this.looper = looper;
+        this.handler = new Handler(looper);
+    }
+
+    public Looper getLooper() {
+        return looper;
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return looper.getThread() == Thread.currentThread();
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        handler.post(command);
+    }
+}
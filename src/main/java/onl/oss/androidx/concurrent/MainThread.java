@@ -0,0 +1,41 @@
+package onl.oss.androidx.concurrent;
+
+// コアから Android への依存を MainThreadDispatcher に閉じ込めるための窓口です。
+// 既定のディスパッチャーは最初に必要になったときに作成するので、Android 以外の JVM でも先に差し替えておけば動作します。
+final class MainThread {
+
+    private static volatile MainThreadDispatcher dispatcher;
+
+    private MainThread() {
+    }
+
+    static MainThreadDispatcher getDispatcher() {
+        MainThreadDispatcher d = dispatcher;
+        if(d == null) {
+            synchronized(MainThread.class) {
+                d = dispatcher;
+                if(d == null) {
+                    d = new AndroidMainThreadDispatcher();
+                    dispatcher = d;
+                }
+            }
+        }
+        return d;
+    }
+
+    static void setDispatcher(MainThreadDispatcher dispatcher) {
+        MainThread.dispatcher = dispatcher;
+    }
+
+    static boolean isCurrentThread() {
+        return getDispatcher().isMainThread();
+    }
+
+    static void post(Runnable runnable) {
+        getDispatcher().post(runnable);
+    }
+
+    static void postOnNextFrame(Runnable runnable) {
+        getDispatcher().postOnNextFrame(runnable);
+    }
+}
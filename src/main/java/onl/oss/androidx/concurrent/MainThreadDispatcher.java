@@ -0,0 +1,35 @@
+package onl.oss.androidx.concurrent;
+
+/** Task や Async がメインスレッドとして扱うスレッドへの配送を抽象化します。
+ * 既定では AndroidMainThreadDispatcher が使用されます。
+ * Android 以外の JVM でテストやベンチマークを行う場合は、Async.setMainThreadDispatcher() で
+ * SingleThreadDispatcher や VirtualTimeDispatcher を指定してください。
+ */
+public interface MainThreadDispatcher {
+
+    /** 現在のスレッドがメインスレッドかどうかを返します。
+     *
+     * @return メインスレッドであれば true
+     */
+    boolean isMainThread();
+
+    /** メインスレッドのキューの末尾にコマンドを投稿します。
+     *
+     * @param runnable コマンド
+     */
+    void post(Runnable runnable);
+
+    /** メインスレッドのキューの先頭にコマンドを投稿します。
+     *
+     * @param runnable コマンド
+     */
+    void postAtFrontOfQueue(Runnable runnable);
+
+    /** 次の表示フレームでコマンドを実行します。
+     * 表示フレームのない実装では、post() と同じように扱って構いません。
+     * このメソッドはどのスレッドからでも呼び出せる必要があります。
+     *
+     * @param runnable コマンド
+     */
+    void postOnNextFrame(Runnable runnable);
+}
@@ -0,0 +1,248 @@
+package onl.oss.androidx.concurrent;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// WorkerResultViewModel の値と例外を、保存される状態に格納するためのハンドルです。
+// 値を受け取った時点で I/O 用のスレッドでシリアライズし、ポリシーの上限を超える場合はファイルに退避しておきます。
+// 状態の保存（onSaveInstanceState）はメインスレッドで行われるので、そこでシリアライズやファイルの書き込みをしないためです。
+// 結果がすぐに届けられた場合は準備が無駄になりますが、その場合は退避ファイルも削除されます。
+// Parcel には、名前を変えて書き込みが完了した退避ファイルのパスか、シリアライズ済みのバイト列を書き込みます。
+// 準備がまだ終わっていない場合は、値をそのまま書き込みます。
+// 復元した値は、最初に get() を呼び出すまで読み込みません。
+final class PersistedValue implements Parcelable {
+
+    private static final int VALUE = 0;
+    private static final int SERIALIZED = 1;
+    private static final int SPILLED = 2;
+
+    private final ResultPersistencePolicy policy;
+    private Object value;
+    private boolean loaded;
+    private byte[] bytes;
+    private String path;
+    private Exception failure;
+    private volatile boolean discarded;
+
+    PersistedValue(Object value, ResultPersistencePolicy policy) {
+        this.policy = policy;
+        this.value = value;
+        this.loaded = true;
+        if(policy != null && value instanceof Serializable) {
+            prepare(value);
+        }
+    }
+
+    // 復元したハンドルは、値を読み込まずにパスかシリアライズ済みのバイト列だけを保持します。
+    private PersistedValue(String path, byte[] bytes) {
+        this.policy = null;
+        this.path = path;
+        this.bytes = bytes;
+    }
+
+    // 復元した値は、ここで初めて逆シリアライズします。どのスレッドから呼び出しても構いません。
+    synchronized Object get() {
+        if(!loaded) {
+            loaded = true;
+            try {
+                if(path != null) {
+                    value = readFile(path);
+                } else if(bytes != null) {
+                    value = deserialize(new ByteArrayInputStream(bytes));
+                }
+            } catch(IOException e) {
+                failure = e;
+            } catch(ClassNotFoundException e) {
+                failure = e;
+            }
+        }
+        return value;
+    }
+
+    // 値の復元に失敗した場合（退避ファイルがキャッシュから削除された場合など）、その原因を返します。
+    synchronized Exception getFailure() {
+        return failure;
+    }
+
+    // 退避ファイルを削除します。準備中の場合は、書き込みが終わった時点で削除されます。
+    synchronized void discard() {
+        discarded = true;
+        if(path != null) {
+            new File(path).delete();
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public synchronized void writeToParcel(Parcel dest, int flags) {
+        // path と bytes は、退避やシリアライズが完了した後で設定されます。復元したまま読み込んでいない値も同じ内容を書き込みます。
+        if(path != null) {
+            dest.writeInt(SPILLED);
+            dest.writeString(path);
+        } else if(bytes != null) {
+            dest.writeInt(SERIALIZED);
+            dest.writeByteArray(bytes);
+        } else {
+            dest.writeInt(VALUE);
+            dest.writeValue(value);
+        }
+    }
+
+    public static final Creator<PersistedValue> CREATOR = new Creator<PersistedValue>() {
+        @Override
+        public PersistedValue createFromParcel(Parcel source) {
+            int kind = source.readInt();
+            if(kind == SPILLED) {
+                return new PersistedValue(source.readString(), (byte[])null);
+            } else if(kind == SERIALIZED) {
+                return new PersistedValue((String)null, source.createByteArray());
+            }
+            return new PersistedValue(source.readValue(PersistedValue.class.getClassLoader()), null);
+        }
+
+        @Override
+        public PersistedValue[] newArray(int size) {
+            return new PersistedValue[size];
+        }
+    };
+
+    // シリアライズや書き込みに失敗した場合は何も設定しないので、状態の保存では値がそのまま書き込まれます。
+    private void prepare(final Object value) {
+        Async.getIoExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if(discarded) {
+                    return;
+                }
+                byte[] b = serialize(value);
+                if(b == null) {
+                    return;
+                }
+                File file = null;
+                if(b.length > policy.getInlineLimit()) {
+                    file = policy.newSpillFile();
+                    if(!writeFile(file, b)) {
+                        return;
+                    }
+                }
+                synchronized(PersistedValue.this) {
+                    if(discarded) {
+                        if(file != null) {
+                            file.delete();
+                        }
+                    } else if(file != null) {
+                        path = file.getAbsolutePath();
+                    } else {
+                        bytes = b;
+                    }
+                }
+            }
+        });
+    }
+
+    // 別名で書き込んでから名前を変えるので、書き込みの途中でプロセスが終了しても、壊れたファイルを読むことはありません。
+    private static boolean writeFile(File file, byte[] bytes) {
+        File directory = file.getParentFile();
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            if(!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                return false;
+            }
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(bytes);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if(temp.renameTo(file)) {
+                return true;
+            }
+        } catch(IOException e) {
+            // 書き込めなかった場合、復元時に値が失われたものとして扱われます。
+        }
+        temp.delete();
+        return false;
+    }
+
+    // ファイルをメモリー・マップして値を復元します。
+    private static Object readFile(String path) throws IOException, ClassNotFoundException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return deserialize(new ByteBufferInputStream(buffer));
+        } finally {
+            file.close();
+        }
+    }
+
+    private static byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(buffer);
+            out.writeObject(value);
+            out.close();
+            return buffer.toByteArray();
+        } catch(IOException e) {
+            return null;
+        }
+    }
+
+    private static Object deserialize(InputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if(len == 0) {
+                return 0;
+            }
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
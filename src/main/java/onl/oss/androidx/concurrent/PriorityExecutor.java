@@ -0,0 +1,137 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.Iterator;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PriorityExecutor extends ThreadPoolExecutor {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** CPU のコア数のスレッドと、DEFAULT_CAPACITY 個のキューを持つエグゼキューターを作成します。
+     * キューが満杯の場合は DiscardLowestPriorityPolicy で最も優先度の低いタスクをキャンセルするので、投入した側で RejectedExecutionException が発生することはありません。
+     *
+     * @param factory スレッドを作成するファクトリー
+     */
+    public PriorityExecutor(ThreadFactory factory) {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CAPACITY, factory, new DiscardLowestPriorityPolicy());
+    }
+
+    public PriorityExecutor(int poolSize, int capacity, ThreadFactory factory, RejectedExecutionHandler handler) {
+        super(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new BoundedPriorityQueue(capacity), factory, handler);
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Async.Priority.NORMAL);
+    }
+
+    public void execute(Runnable command, Async.Priority priority) {
+        if(command == null || priority == null) {
+            throw new NullPointerException();
+        }
+        super.execute(new Entry(command, priority, sequence.getAndIncrement()));
+    }
+
+    static final class Entry implements Runnable, Comparable<Entry> {
+        private final Runnable command;
+        private final Async.Priority priority;
+        private final long sequence;
+
+        private Entry(Runnable command, Async.Priority priority, long sequence) {
+            this.command = command;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            command.run();
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int c = priority.compareTo(other.priority);
+            if(c == 0) {
+                c = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+            }
+            return c;
+        }
+    }
+
+    /** キューが満杯の場合、キュー内で最も優先度の低いタスクを破棄して、新しいタスクを投入します。
+     * 新しいタスクの優先度の方が低い場合は、新しいタスクが破棄されます。
+     * 破棄したタスクが Future（Async のタスクなど）の場合はキャンセルするので、そのタスクには CANCELLED が配送されます。
+     * DiscardOldestPolicy はキューの先頭（最も優先度の高いタスク）を破棄してしまうため、代わりにこのポリシーを使用してください。
+     */
+    public static class DiscardLowestPriorityPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if(!(runnable instanceof Entry)) {
+                return;
+            }
+            Entry entry = (Entry)runnable;
+            if(executor.isShutdown()) {
+                discard(entry);
+                return;
+            }
+            Entry lowest = null;
+            Iterator<Runnable> it = executor.getQueue().iterator();
+            while(it.hasNext()) {
+                Runnable r = it.next();
+                if(r instanceof Entry && (lowest == null || ((Entry)r).compareTo(lowest) > 0)) {
+                    lowest = (Entry)r;
+                }
+            }
+            if(lowest != null && lowest.compareTo(entry) > 0 && executor.remove(lowest)) {
+                discard(lowest);
+                if(executor.getQueue().offer(entry)) {
+                    return;
+                }
+            }
+            discard(entry);
+        }
+
+        // 破棄したタスクが完了しないままにならないように、キャンセルして完了させます。
+        private static void discard(Entry entry) {
+            if(entry.command instanceof Future) {
+                ((Future<?>)entry.command).cancel(false);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+        private final int capacity;
+
+        private BoundedPriorityQueue(int capacity) {
+            super(Math.min(capacity, 11));
+            this.capacity = capacity;
+        }
+
+        // 取り出し側はサイズを減らすだけなので、投入側だけを直列化すれば容量を超えることはありません。
+        @Override
+        public synchronized boolean offer(Runnable runnable) {
+            if(size() >= capacity) {
+                return false;
+            }
+            return super.offer(runnable);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/** ProgressCallable を実行する AsyncCallable です。Async.execute(ProgressCallable) が返します。
+ * 途中の結果の型 P は ProgressCallable の型と一致するので、型の異なる onPublished() のコールバックはコンパイル時に検出されます。
+ *
+ * @param <V> 結果の型
+ * @param <P> 途中の結果の型
+ */
+public interface ProgressAsyncCallable<V, P> extends AsyncCallable<V> {
+
+    @Override
+    ProgressAsyncCallable<V, P> tag(String name);
+
+    @Override
+    ProgressAsyncCallable<V, P> callbackOn(Executor executor);
+
+    @Override
+    ProgressAsyncCallable<V, P> onCancelled(Async.Cancel callback);
+
+    @Override
+    ProgressAsyncCallable<V, P> onSucceeded(Success<V> callback);
+
+    @Override
+    ProgressAsyncCallable<V, P> onFailed(Async.Failure callback);
+
+    @Override
+    ProgressAsyncCallable<V, P> onCompleted(Async.Complete callback);
+
+    @Override
+    ProgressAsyncCallable<V, P> timeout(long timeout, TimeUnit unit);
+
+    @Override
+    ProgressAsyncCallable<V, P> deadline(long deadlineNanos);
+
+    @Override
+    ProgressAsyncCallable<V, P> cancelOnTimeout();
+
+    @Override
+    ProgressAsyncCallable<V, P> onRetry(Async.Retry callback);
+
+    @Override
+    ProgressAsyncCallable<V, P> onProgress(Async.Progress callback);
+
+    @Override
+    ProgressAsyncCallable<V, P> onMessage(Async.Message callback);
+
+    /** ProgressCallable.Reporter.publish() で公開された途中の結果を受け取るコールバックを設定します。
+     * 表示フレームごとに最大1回だけ、最新の値が届けられます。
+     *
+     * @param callback コールバック
+     * @return このオブジェクト
+     */
+    ProgressAsyncCallable<V, P> onPublished(Async.Partial<P> callback);
+}
@@ -0,0 +1,18 @@
+package onl.oss.androidx.concurrent;
+
+@FunctionalInterface
+public interface ProgressCallable<V, P> {
+
+    V call(Reporter<P> reporter) throws Exception;
+
+    /** ワーカースレッドから進捗を報告します。
+     * 報告はメインスレッドへ表示フレームごとに最大1回だけ届けられ、その間に報告された値は最新のものだけが残ります。
+     */
+    interface Reporter<P> {
+        void updateProgress(long workDone, long max);
+
+        void updateMessage(String message);
+
+        void publish(P partial);
+    }
+}
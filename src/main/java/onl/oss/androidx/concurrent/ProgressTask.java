@@ -0,0 +1,25 @@
+package onl.oss.androidx.concurrent;
+
+/** 途中の結果を型付きで公開できる Task です。
+ * publish() で公開した値は、updateProgress() や updateMessage() と同じく、コールバック用のスレッドへ表示フレームごとに最大1回だけ published() に届けられます。
+ * その間に公開された値は最新のものだけが残ります。
+ *
+ * @param <V> 結果の型
+ * @param <P> 途中の結果の型
+ */
+public abstract class ProgressTask<V, P> extends Task<V> {
+
+    protected final void publish(P partial) {
+        publishPartial(partial);
+    }
+
+    protected void published(P partial) {
+    }
+
+    @Override
+    final void partialPublished(Object partial) {
+        @SuppressWarnings("unchecked")
+        P p = (P)partial;
+        published(p);
+    }
+}
@@ -0,0 +1,64 @@
+package onl.oss.androidx.concurrent;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.UUID;
+
+public class ResultPersistencePolicy {
+
+    public static final int DEFAULT_INLINE_LIMIT = 32 * 1024;
+
+    private static final String DIRECTORY_NAME = "worker-results";
+
+    private final Context context;
+    private final int inlineLimit;
+    private File directory;
+
+    /** アプリのキャッシュ・ディレクトリを使用し、DEFAULT_INLINE_LIMIT バイトを超える値をファイルに退避するポリシーを作成します。
+     * キャッシュ・ディレクトリは、最初に値を退避するときに取得します。
+     *
+     * @param context コンテキスト
+     */
+    public ResultPersistencePolicy(Context context) {
+        this.context = context.getApplicationContext();
+        this.inlineLimit = DEFAULT_INLINE_LIMIT;
+    }
+
+    /** シリアライズ後のサイズが inlineLimit バイトを超える値を、指定したディレクトリのファイルに退避するポリシーを作成します。
+     * 退避した値の代わりに、保存される状態にはファイルへの小さな参照だけが格納されます。
+     * シリアライズと退避は、値を受け取った時点で I/O 用のスレッドで行われ、状態の保存でメインスレッドを止めることはありません。
+     * 状態が保存されるまでに退避が終わっていない場合、その値はそのまま保存されます。
+     * Serializable でない値（Parcelable など）は常にそのまま保存されます。
+     *
+     * @param directory 退避ファイルを作成するディレクトリ
+     * @param inlineLimit 状態にそのまま保存する値の最大バイト数
+     */
+    public ResultPersistencePolicy(File directory, int inlineLimit) {
+        if(directory == null) {
+            throw new NullPointerException("directory");
+        }
+        if(inlineLimit < 0) {
+            throw new IllegalArgumentException("inlineLimit must not be negative");
+        }
+        this.context = null;
+        this.directory = directory;
+        this.inlineLimit = inlineLimit;
+    }
+
+    public synchronized File getDirectory() {
+        if(directory == null) {
+            directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+        }
+        return directory;
+    }
+
+    public int getInlineLimit() {
+        return inlineLimit;
+    }
+
+    // I/O 用のスレッドから呼び出されます。ディレクトリの作成は書き込むときに行います。
+    File newSpillFile() {
+        return new File(getDirectory(), "result-" + UUID.randomUUID() + ".ser");
+    }
+}
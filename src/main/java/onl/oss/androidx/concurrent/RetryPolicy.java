@@ -0,0 +1,86 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class RetryPolicy {
+
+    private static final Random random = new Random();
+
+    private final int maxAttempts;
+    private long initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(500);
+    private long maxDelayNanos = TimeUnit.SECONDS.toNanos(30);
+    private double multiplier = 2.0;
+    private double jitter = 0.5;
+    private Condition condition;
+
+    /** 最大 maxAttempts 回まで処理を試行するリトライ・ポリシーを作成します。
+     * 既定では、すべての例外を再試行の対象とし、0.5秒から始めて2倍ずつ（最大30秒）待機時間を延ばします。
+     *
+     * @param maxAttempts 最初の試行を含む最大試行回数
+     */
+    public RetryPolicy(int maxAttempts) {
+        if(maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public RetryPolicy backoff(long initialDelay, long maxDelay, TimeUnit unit) {
+        this.initialDelayNanos = unit.toNanos(initialDelay);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        return this;
+    }
+
+    public RetryPolicy multiplier(double multiplier) {
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /** 待機時間のばらつきを指定します。
+     * 0.0 の場合は常に同じ待機時間になり、1.0 の場合は 0 から待機時間までの間でランダムになります。
+     *
+     * @param jitter 0.0 から 1.0 までの割合
+     * @return このオブジェクト
+     */
+    public RetryPolicy jitter(double jitter) {
+        if(jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("jitter must be between 0.0 and 1.0");
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    public RetryPolicy retryOn(Condition condition) {
+        this.condition = condition;
+        return this;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    boolean shouldRetry(int attempts, Exception exception) {
+        if(attempts >= maxAttempts) {
+            return false;
+        }
+        return condition == null || condition.isRetryable(exception);
+    }
+
+    long getDelayNanos(int attempts) {
+        double delay = initialDelayNanos * Math.pow(multiplier, attempts - 1);
+        if(delay > maxDelayNanos) {
+            delay = maxDelayNanos;
+        }
+        double r;
+        synchronized(random) {
+            r = random.nextDouble();
+        }
+        return (long)(delay - delay * jitter * r);
+    }
+
+    @FunctionalInterface
+    public interface Condition {
+        boolean isRetryable(Exception exception);
+    }
+}
@@ -0,0 +1,153 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// 前段の処理が失敗した場合に、同じ処理を待機時間をおいて再試行するステージです。
+// 待機はワーカースレッドをブロックせず、共有タイマーで次の試行を投入します。
+// 再試行はメインスレッドを経由せず、結果が確定したときだけ後段のタスクを実行します。
+// 2回目以降の試行にも、最初の試行のタイムアウトと、最初の試行と後段のタスクの期限のうち早い方を適用します。
+final class RetryStage<V> implements Callable<V>, Cancellable {
+
+    private final Cancellable previous;
+    private final Task<?> first;
+    private final Callable<V> body;
+    private final Executor executor;
+    private final Async.Priority priority;
+    private final RetryPolicy policy;
+    private final Async<V> owner;
+    private int attempts;
+    private volatile boolean cancelled;
+    private volatile Future<?> current;
+    private Future<V> decisive;
+    private Exception failure;
+
+    RetryStage(Cancellable previous, Task<?> first, Callable<V> body, Executor executor, Async.Priority priority, RetryPolicy policy, Async<V> owner) {
+        this.previous = previous;
+        this.first = first;
+        this.body = body;
+        this.executor = executor;
+        this.priority = priority;
+        this.policy = policy;
+        this.owner = owner;
+    }
+
+    // 試行が完了したときに、その試行を実行したスレッドで呼び出されます。
+    void attemptDone(Future<V> attempt, Exception timeout) {
+        // 後段のタスクが期限切れなどで既に終わっている場合は、それ以上試行しません。
+        if(cancelled || owner.getTask().isDone()) {
+            return;
+        }
+        if(attempt.isCancelled() && timeout == null) {
+            owner.getTask().cancel(true);
+            return;
+        }
+        // タイムアウトと同時に正常に完了した試行は、キャンセルされていないので結果を使います。
+        Exception exception = attempt.isCancelled() ? timeout : null;
+        if(exception == null) {
+            try {
+                attempt.get();
+            } catch(ExecutionException e) {
+                if(e.getCause() instanceof Exception) {
+                    exception = (Exception)e.getCause();
+                }
+            } catch(Exception e) {
+                exception = e;
+            }
+        }
+        attempts++;
+        if(exception != null && policy.shouldRetry(attempts, exception)) {
+            final int attempt0 = attempts;
+            final Exception exception0 = exception;
+            // onRetry は、設定より先に呼び出されないように、その場では呼び出さずにコールバック用のエグゼキューターに投入します。
+            Runnable notification = new Runnable() {
+                @Override
+                public void run() {
+                    owner.retried(attempt0, exception0);
+                }
+            };
+            Executor callbackExecutor = owner.getTask().getCallbackExecutor();
+            if(callbackExecutor == null) {
+                MainThread.post(notification);
+            } else {
+                callbackExecutor.execute(notification);
+            }
+            current = Scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submitAttempt();
+                }
+            }, policy.getDelayNanos(attempts), TimeUnit.NANOSECONDS);
+            if(cancelled) {
+                current.cancel(false);
+            }
+            return;
+        }
+        decisive = attempt;
+        failure = timeout;
+        if(MainThread.isCurrentThread()) {
+            Async.submit(executor, priority, owner.getTask());
+        } else {
+            owner.getTask().run();
+        }
+    }
+
+    private void submitAttempt() {
+        Attempt attempt = new Attempt();
+        current = attempt;
+        if(cancelled || owner.getTask().isDone()) {
+            attempt.cancel(true);
+            return;
+        }
+        first.copyTimeoutTo(attempt);
+        owner.getTask().copyTimeoutTo(attempt);
+        Async.submit(executor, priority, attempt);
+    }
+
+    @Override
+    public V call() throws Exception {
+        if(failure != null) {
+            throw failure;
+        }
+        try {
+            return decisive.get();
+        } catch(ExecutionException e) {
+            Throwable t = e.getCause();
+            if(t instanceof Error) {
+                throw (Error)t;
+            }
+            throw (Exception)t;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        Future<?> f = current;
+        if(f != null) {
+            f.cancel(true);
+        }
+        previous.cancel();
+    }
+
+    // 2回目以降の試行です。タイムアウトと期限のために Task として実行します。
+    // コールバックを持たないので、遷移はメインスレッドに投稿せずにその場で適用します。
+    private final class Attempt extends Task<V> {
+        private Attempt() {
+            setCallbackExecutor(Async.DIRECT);
+        }
+
+        @Override
+        protected V call() throws Exception {
+            return body.call();
+        }
+
+        @Override
+        protected void done() {
+            attemptDone(this, getTimeoutFailure());
+        }
+    }
+}
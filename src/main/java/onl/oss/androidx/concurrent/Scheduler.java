@@ -0,0 +1,54 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// タイムアウトや遅延実行のための共有タイマーです。
+// タイマーごとにスレッドを作らず、1つのデーモン・スレッドですべての予定を処理します。
+// メインスレッドのディスパッチャーが VirtualTimeDispatcher の場合は、その仮想時間で予定を処理します。
+final class Scheduler {
+
+    private static ScheduledThreadPoolExecutor executor;
+
+    private Scheduler() {
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getExecutor() {
+        if(executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Async-Scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+
+    // 期限やキャッシュの有効期限の基準となる時刻です。VirtualTimeDispatcher の場合は仮想時間を返します。
+    static long nanoTime() {
+        MainThreadDispatcher dispatcher = MainThread.getDispatcher();
+        if(dispatcher instanceof VirtualTimeDispatcher) {
+            return ((VirtualTimeDispatcher)dispatcher).now();
+        }
+        return System.nanoTime();
+    }
+
+    static ScheduledFuture<?> schedule(Runnable runnable, long delay, TimeUnit unit) {
+        MainThreadDispatcher dispatcher = MainThread.getDispatcher();
+        if(dispatcher instanceof VirtualTimeDispatcher) {
+            return ((VirtualTimeDispatcher)dispatcher).schedule(runnable, delay, unit);
+        }
+        return getExecutor().schedule(runnable, delay, unit);
+    }
+
+    // 実際に経過した時間を計る予定です。コールバックの実行時間の監視など、仮想時間では意味がない場合に使用します。
+    static ScheduledFuture<?> scheduleRealTime(Runnable runnable, long delay, TimeUnit unit) {
+        return getExecutor().schedule(runnable, delay, unit);
+    }
+}
@@ -0,0 +1,105 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// 同じキーのタスクを投入順に1つずつ、共有プールで実行します。レーンごとの専用スレッドはありません。
+// キューが空になったレーンは登録から外され、次の投入時に新しいレーンが作成されます。
+final class SerialLane implements Executor, Runnable {
+
+    private static final ConcurrentMap<Object, SerialLane> lanes = new ConcurrentHashMap<Object, SerialLane>();
+
+    private final Object key;
+    // 実行中のタスクは完了するまでキューの先頭に残します。
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+    private boolean active;
+    private boolean retired;
+
+    private SerialLane(Object key) {
+        this.key = key;
+    }
+
+    static SerialLane obtain(Object key) {
+        SerialLane lane = lanes.get(key);
+        if(lane == null) {
+            SerialLane created = new SerialLane(key);
+            SerialLane existing = lanes.putIfAbsent(key, created);
+            lane = (existing != null) ? existing : created;
+        }
+        return lane;
+    }
+
+    static int getQueueDepth(Object key) {
+        SerialLane lane = lanes.get(key);
+        return (lane != null) ? lane.depth() : 0;
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if(command == null) {
+            throw new NullPointerException();
+        }
+        boolean forward;
+        boolean start = false;
+        synchronized(this) {
+            forward = retired;
+            if(!forward) {
+                queue.add(command);
+                start = !active;
+                active = true;
+            }
+        }
+        if(forward) {
+            // 登録から外れたレーンを保持している後続ステージは、現在のレーンに投入し直します。
+            obtain(key).execute(command);
+        } else if(start) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void run() {
+        Runnable command;
+        synchronized(this) {
+            command = queue.peek();
+        }
+        try {
+            command.run();
+        } finally {
+            boolean more;
+            synchronized(this) {
+                queue.poll();
+                more = !queue.isEmpty();
+                if(!more) {
+                    active = false;
+                    retired = true;
+                    lanes.remove(key, this);
+                }
+            }
+            if(more) {
+                schedule();
+            }
+        }
+    }
+
+    private void schedule() {
+        try {
+            Async.getIoExecutor().execute(this);
+        } catch(RejectedExecutionException e) {
+            synchronized(this) {
+                queue.clear();
+                active = false;
+                retired = true;
+                lanes.remove(key, this);
+            }
+            throw e;
+        }
+    }
+}
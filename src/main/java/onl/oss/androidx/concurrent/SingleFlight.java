@@ -0,0 +1,119 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+// 同じキーで実行中の処理がある間、後からの呼び出しを新しく実行せずにその処理の結果を共有させます。
+// 元の処理は、結果を待つすべての呼び出し元がキャンセルした場合にだけキャンセルされます。
+final class SingleFlight<V> implements Callable<V>, Cancellable {
+
+    private static final ConcurrentMap<Object, SingleFlight<?>> flights = new ConcurrentHashMap<Object, SingleFlight<?>>();
+
+    private final Object key;
+    private final FutureTask<V> source;
+    private final List<Async<V>> subscribers = new ArrayList<Async<V>>(2);
+    private int active;
+    private boolean started;
+    private boolean done;
+
+    private SingleFlight(Object key, Callable<V> callable) {
+        this.key = key;
+        this.source = new FutureTask<V>(callable) {
+            @Override
+            protected void done() {
+                completed();
+            }
+        };
+    }
+
+    // キーに対応する実行中の処理を返します。ない場合は新しく登録します。
+    static <V> SingleFlight<V> obtain(Object key, Callable<V> callable) {
+        @SuppressWarnings("unchecked")
+        SingleFlight<V> flight = (SingleFlight<V>)flights.get(key);
+        if(flight == null) {
+            SingleFlight<V> created = new SingleFlight<V>(key, callable);
+            @SuppressWarnings("unchecked")
+            SingleFlight<V> existing = (SingleFlight<V>)flights.putIfAbsent(key, created);
+            flight = (existing != null) ? existing : created;
+        }
+        return flight;
+    }
+
+    FutureTask<V> getSource() {
+        return source;
+    }
+
+    synchronized boolean subscribe(Async<V> async) {
+        if(done) {
+            return false;
+        }
+        subscribers.add(async);
+        active++;
+        return true;
+    }
+
+    // 最初に呼び出したときだけ true を返します。true を受け取った呼び出し元が元の処理を投入します。
+    synchronized boolean markStarted() {
+        if(started) {
+            return false;
+        }
+        started = true;
+        return true;
+    }
+
+    @Override
+    public void cancel() {
+        boolean cancelSource;
+        synchronized(this) {
+            active--;
+            cancelSource = (active == 0 && !done);
+            if(cancelSource) {
+                done = true;
+                flights.remove(key, this);
+            }
+        }
+        if(cancelSource) {
+            source.cancel(true);
+        }
+    }
+
+    private void completed() {
+        List<Async<V>> list;
+        synchronized(this) {
+            done = true;
+            flights.remove(key, this);
+            list = new ArrayList<Async<V>>(subscribers);
+            subscribers.clear();
+        }
+        boolean cancelled = source.isCancelled();
+        boolean mainThread = MainThread.isCurrentThread();
+        for(Async<V> async : list) {
+            Task<V> task = async.getTask();
+            if(cancelled) {
+                task.cancel(true);
+            } else if(mainThread) {
+                Async.submit(Async.getExecutor(), Async.Priority.NORMAL, task);
+            } else {
+                task.run();
+            }
+        }
+    }
+
+    @Override
+    public V call() throws Exception {
+        try {
+            return source.get();
+        } catch(ExecutionException e) {
+            Throwable t = e.getCause();
+            if(t instanceof Error) {
+                throw (Error)t;
+            }
+            throw (Exception)t;
+        }
+    }
+}
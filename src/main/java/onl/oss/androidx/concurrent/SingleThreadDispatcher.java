@@ -0,0 +1,86 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/** 専用のスレッドを1つ作成し、そのスレッドをメインスレッドとして扱う MainThreadDispatcher です。
+ * Android 以外の JVM で、メインルーパーの代わりに使用できます。表示フレームはなく、postOnNextFrame() は post() と同じです。
+ */
+public class SingleThreadDispatcher implements MainThreadDispatcher {
+
+    private static final Runnable STOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final BlockingDeque<Runnable> queue = new LinkedBlockingDeque<Runnable>();
+    private final Thread thread;
+
+    public SingleThreadDispatcher() {
+        this("Async-Main");
+    }
+
+    public SingleThreadDispatcher(String name) {
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return thread == Thread.currentThread();
+    }
+
+    @Override
+    public void post(Runnable runnable) {
+        queue.offerLast(runnable);
+    }
+
+    @Override
+    public void postAtFrontOfQueue(Runnable runnable) {
+        queue.offerFirst(runnable);
+    }
+
+    @Override
+    public void postOnNextFrame(Runnable runnable) {
+        queue.offerLast(runnable);
+    }
+
+    /** キューに投稿済みのコマンドをすべて実行した後で、スレッドを終了します。
+     */
+    public void quit() {
+        queue.offerLast(STOP);
+    }
+
+    private void loop() {
+        for(;;) {
+            Runnable runnable;
+            try {
+                runnable = queue.takeFirst();
+            } catch(InterruptedException e) {
+                return;
+            }
+            if(runnable == STOP) {
+                return;
+            }
+            try {
+                runnable.run();
+            } catch(RuntimeException e) {
+                Thread.UncaughtExceptionHandler ueh = thread.getUncaughtExceptionHandler();
+                if(ueh != null) {
+                    ueh.uncaughtException(thread, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package onl.oss.androidx.concurrent;
+
+@FunctionalInterface
+public interface StreamCallable<T> {
+
+    void call(Emitter<T> emitter) throws Exception;
+
+    interface Emitter<T> {
+        /** 要素をバッファーに追加します。
+         * バッファーが満杯の場合、メインスレッドが要素を受け取って空きができるまでブロックします。
+         *
+         * @param item 要素（null は指定できません）
+         * @throws InterruptedException ストリームがキャンセルされた場合
+         */
+        void emit(T item) throws InterruptedException;
+    }
+}
@@ -0,0 +1,54 @@
+package onl.oss.androidx.concurrent;
+
+import android.os.Build;
+import android.os.Trace;
+
+/** android.os.Trace の区間としてタスクを記録する TaskTracer です。Systrace や Perfetto で表示できます。
+ * call() とコールバックは同期の区間として、投入から完了までは非同期の区間（API 29 以降）として記録されます。
+ * 区間の名前にはタスクの名前（Task.getTag()）を使用します。
+ */
+public class SystraceTracer implements TaskTracer {
+
+    // Trace の区間名の上限です。
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private static final boolean ASYNC_SECTIONS = Build.VERSION.SDK_INT >= 29;
+
+    private static String truncate(String name) {
+        return (name.length() > MAX_NAME_LENGTH) ? name.substring(0, MAX_NAME_LENGTH) : name;
+    }
+
+    @Override
+    public void submitted(Task<?> task, String name, int id) {
+        if(ASYNC_SECTIONS) {
+            Trace.beginAsyncSection(truncate(name), id);
+        }
+    }
+
+    @Override
+    public void beginCall(Task<?> task) {
+        Trace.beginSection(truncate(task.getTraceName()));
+    }
+
+    @Override
+    public void endCall(Task<?> task) {
+        Trace.endSection();
+    }
+
+    @Override
+    public void beginCallback(Task<?> task, Worker.State state) {
+        Trace.beginSection(truncate(task.getCallbackTraceName(state)));
+    }
+
+    @Override
+    public void endCallback(Task<?> task, Worker.State state) {
+        Trace.endSection();
+    }
+
+    @Override
+    public void completed(Task<?> task, String name, int id) {
+        if(ASYNC_SECTIONS) {
+            Trace.endAsyncSection(truncate(name), id);
+        }
+    }
+}
@@ -1,21 +1,91 @@
 package onl.oss.androidx.concurrent;
 
-import android.os.Handler;
-import android.os.Looper;
-
+import java.util.Locale;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public abstract class Task<V> extends FutureTask<V> implements Worker<V> {
 
-    private Handler handler = new Handler(Looper.getMainLooper());
-    private AtomicReference<V> valueUpdate = new AtomicReference<V>();
+    private static final int TRANSITION_STARTED = 1;
+    private static final int TRANSITION_VALUE = 2;
+    private static final int TRANSITION_DONE = 4;
+    private static final int TRANSITION_CANCELLED = 8;
+
+    private static final int UPDATE_PROGRESS = 1;
+    private static final int UPDATE_MESSAGE = 2;
+    private static final int UPDATE_PARTIAL = 4;
+
+    // タスクごとに Atomic オブジェクトを生成しないように、フィールド・アップデーターを共有します。
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Task> transitionsUpdater = AtomicIntegerFieldUpdater.newUpdater(Task.class, "transitions");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Task> updatesUpdater = AtomicIntegerFieldUpdater.newUpdater(Task.class, "updates");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Task> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");
+
+    private static final State[] STATES = State.values();
+
+    // リスナーがない場合のコストは、この volatile フィールドの読み取りだけです。
+    static volatile TaskListener listener;
+
+    static volatile TaskTracer tracer;
+
+    private static final AtomicInteger traceIds = new AtomicInteger();
+
+    // コールバックの区間名に付ける状態名です。端末のロケール（トルコ語など）で結果が変わらないように、Locale.ROOT で一度だけ小文字にします。
+    private static final String[] CALLBACK_TRACE_SUFFIXES = new String[STATES.length];
+
+    static {
+        for(State state : STATES) {
+            CALLBACK_TRACE_SUFFIXES[state.ordinal()] = "." + state.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private volatile int transitions;
+    // null の場合はメインスレッドでコールバックを呼び出します。
+    private volatile Executor callbackExecutor;
+    private Runnable transitionDrain;
+    private Runnable updateDrain;
+    Task<?> nextTransition;
+    private volatile int updates;
+    Task<?> nextUpdate;
+    private volatile long workDoneUpdate = -1;
+    private volatile long totalWorkUpdate = -1;
+    private volatile String messageUpdate;
+    private volatile Object partialUpdate;
+    private volatile V valueUpdate;
+    private V result;
+    private Throwable failure;
     private volatile boolean started = false;
-    private State state = State.READY;
-    private boolean running = false;
-    private V value;
-    private Throwable exception;
+    // 後段のステージに結果を渡すだけの中間ステージです。遷移をメインスレッドに投稿しません。
+    private volatile boolean intermediate;
+    private volatile long startNanos;
+    private volatile long submitNanos;
+    private volatile long deliveryNanos;
+    private volatile String tag;
+    private volatile int traceId;
+    private volatile String asyncTraceName;
+    private volatile boolean timed;
+    private long timeoutNanos = -1;
+    private long deadlineNanos;
+    private boolean hasDeadline;
+    private ScheduledFuture<?> timer;
+    private volatile boolean cancelOnTimeout;
+    private volatile TaskTimeoutException timeoutException;
+    // 状態は State の序数として保持します。値や例外は状態より先に書き込むので、状態を読んだスレッドからも見えます。
+    private volatile int state = State.READY.ordinal();
+    private volatile V value;
+    private volatile Throwable exception;
+    private volatile long workDone = -1;
+    private volatile long totalWork = -1;
+    private volatile String message;
 
     public Task() {
         this(new TaskCallable<V>());
@@ -28,41 +98,141 @@ public abstract class Task<V> extends FutureTask<V> implements Worker<V> {
 
     protected abstract V call() throws Exception;
 
+    // 遷移は CAS で適用します。終了状態からの遷移や、後戻りする遷移は無視されます。
+    // コールバックは、遷移を適用したスレッド（メインスレッド）で呼び出されます。
     final void setState(State value) {
-        checkThread();
-        State s = getState();
-        if(s != State.CANCELLED) {
-            this.state = value;
-            setRunning(value == State.SCHEDULED || value == State.RUNNING);
-
-            switch(state) {
-                case CANCELLED:
-                    cancelled();
-                    break;
-                case FAILED:
-                    failed();
-                    break;
-                case READY:
-                    break;
-                case RUNNING:
-                    running();
-                    break;
-                case SCHEDULED:
-                    scheduled();
-                    break;
-                case SUCCEEDED:
-                    succeeded();
-                    break;
-                default:
-                    throw new AssertionError("Should be unreachable");
+        int next = value.ordinal();
+        for(;;) {
+            int s = state;
+            if(!isValidTransition(STATES[s], value)) {
+                return;
+            }
+            if(stateUpdater.compareAndSet(this, s, next)) {
+                break;
+            }
+        }
+        boolean terminal = isTerminal(value);
+        TaskListener l = terminal ? listener : null;
+        TaskTracer t = tracer;
+        if(l == null && t == null) {
+            dispatchState(value);
+            return;
+        }
+        if(l != null) {
+            deliveryNanos = System.nanoTime();
+            l.onDeliveryStarted(this, deliveryNanos);
+        }
+        if(t != null) {
+            t.beginCallback(this, value);
+        }
+        try {
+            dispatchState(value);
+        } finally {
+            if(t != null) {
+                t.endCallback(this, value);
+                if(terminal && traceId != 0) {
+                    t.completed(this, asyncTraceName, traceId);
+                }
+            }
+            if(l != null) {
+                l.onDeliveryFinished(this, System.nanoTime());
             }
         }
     }
 
+    private void dispatchState(State value) {
+        switch(value) {
+            case CANCELLED:
+                cancelled();
+                break;
+            case FAILED:
+                failed();
+                break;
+            case READY:
+                break;
+            case RUNNING:
+                running();
+                break;
+            case SCHEDULED:
+                scheduled();
+                break;
+            case SUCCEEDED:
+                succeeded();
+                break;
+            default:
+                throw new AssertionError("Should be unreachable");
+        }
+    }
+
+    /** 計測やログで使用する名前を設定します。
+     *
+     * @param tag 名前
+     */
+    public final void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public final String getTag() {
+        return tag;
+    }
+
+    // トレースの区間名です。名前がない場合はクラス名を使用します。
+    final String getTraceName() {
+        String t = tag;
+        return (t != null) ? t : getClass().getName();
+    }
+
+    final String getCallbackTraceName(State state) {
+        return getTraceName() + CALLBACK_TRACE_SUFFIXES[state.ordinal()];
+    }
+
+    final long getSubmitNanos() {
+        return submitNanos;
+    }
+
+    final long getStartNanos() {
+        return startNanos;
+    }
+
+    final long getDeliveryNanos() {
+        return deliveryNanos;
+    }
+
+    final void submitted() {
+        TaskListener l = listener;
+        if(l != null) {
+            submitNanos = System.nanoTime();
+            l.onSubmitted(this, submitNanos);
+        }
+        TaskTracer t = tracer;
+        if(t != null) {
+            int id = traceIds.incrementAndGet();
+            asyncTraceName = getTraceName();
+            traceId = (id != 0) ? id : traceIds.incrementAndGet();
+            t.submitted(this, asyncTraceName, traceId);
+        }
+    }
+
+    private static boolean isValidTransition(State from, State to) {
+        switch(from) {
+            case READY:
+                return to != State.READY;
+            case SCHEDULED:
+                return to != State.READY && to != State.SCHEDULED;
+            case RUNNING:
+                return to != State.READY && to != State.SCHEDULED && to != State.RUNNING;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTerminal(State state) {
+        return state == State.SUCCEEDED || state == State.FAILED || state == State.CANCELLED;
+    }
+
     @Override
     public State getState() {
-        checkThread();
-        return state;
+        return STATES[state];
     }
 
     protected void scheduled() {
@@ -80,39 +250,55 @@ public abstract class Task<V> extends FutureTask<V> implements Worker<V> {
     protected void failed() {
     }
 
-    /*
-    private void setValue(V value) {
-        checkThread();
-        this.value = value;
+    protected void progressUpdated() {
+    }
+
+    protected void messageUpdated() {
+    }
+
+    // 途中の結果の配送先です。型付きの published() は ProgressTask で定義します。
+    void partialPublished(Object partial) {
     }
-    */
 
     @Override
     public final V getValue() {
-        checkThread();
         return value;
     }
 
     private void _setException(Throwable value) {
-        checkThread();
         this.exception = value;
     }
 
     @Override
     public final Throwable getException() {
-        checkThread();
         return exception;
     }
 
-    private void setRunning(boolean value) {
-        checkThread();
-        running = value;
-    }
-
     @Override
     public final boolean isRunning() {
-        checkThread();
-        return running;
+        int s = state;
+        return s == State.SCHEDULED.ordinal() || s == State.RUNNING.ordinal();
+    }
+
+    public final long getWorkDone() {
+        return workDone;
+    }
+
+    public final long getTotalWork() {
+        return totalWork;
+    }
+
+    public final double getProgress() {
+        long done = workDone;
+        long total = totalWork;
+        if(done < 0 || total <= 0) {
+            return -1.0;
+        }
+        return Math.min(1.0, (double)done / total);
+    }
+
+    public final String getMessage() {
+        return message;
     }
 
     @Override
@@ -124,38 +310,345 @@ public abstract class Task<V> extends FutureTask<V> implements Worker<V> {
     public boolean cancel(boolean mayInterruptIfRunning) {
         boolean flag = super.cancel(mayInterruptIfRunning);
         if(flag) {
-            if(Looper.getMainLooper().getThread() == Thread.currentThread()) {
-                setState(State.CANCELLED);
+            if(timed) {
+                disarmTimer();
+            }
+            if(isCallbackThread()) {
+                setCancelled();
             } else {
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        setState(State.CANCELLED);
-                    }
-                });
+                postTransition(TRANSITION_CANCELLED);
             }
         }
         return flag;
     }
 
+    /** call() の開始から指定した時間が経過してもタスクが完了しない場合、タスクを中断します。
+     * 中断されたタスクは TaskTimeoutException で失敗します。setCancelOnTimeout(true) の場合はキャンセルされます。
+     *
+     * @param timeout タイムアウトまでの時間
+     * @param unit timeout の単位
+     */
+    public final synchronized void setTimeout(long timeout, TimeUnit unit) {
+        timeoutNanos = unit.toNanos(timeout);
+        timed = true;
+        armTimer();
+    }
+
+    /** 指定した時刻までにタスクが完了しない場合、タスクを中断します。
+     * タスクがまだ開始されていない場合も、その時刻を過ぎた時点で中断されます。
+     *
+     * @param deadlineNanos System.nanoTime() を基準とした期限。VirtualTimeDispatcher を指定している間は、その now() を基準とします
+     */
+    public final synchronized void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = true;
+        timed = true;
+        armTimer();
+    }
+
+    public final void setCancelOnTimeout(boolean cancelOnTimeout) {
+        this.cancelOnTimeout = cancelOnTimeout;
+    }
+
+    private synchronized void armTimer() {
+        if(timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        if(isDone()) {
+            return;
+        }
+        long delay = 0;
+        boolean armed = false;
+        if(hasDeadline) {
+            delay = deadlineNanos - Scheduler.nanoTime();
+            armed = true;
+        }
+        if(timeoutNanos >= 0 && started) {
+            // タイムアウトは call() の開始から計ります。startNanos は計測用の実時間なので、経過した時間だけを差し引きます。
+            long d = timeoutNanos - (System.nanoTime() - startNanos);
+            if(!armed || d < delay) {
+                delay = d;
+            }
+            armed = true;
+        }
+        if(armed) {
+            timer = Scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timeout();
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // 再試行の試行に、このタスクのタイムアウトと期限を引き継ぎます。
+    // タイムアウトは試行ごとに call() の開始から計り、期限は既に設定されている期限より早い場合だけ引き継ぎます。
+    final void copyTimeoutTo(Task<?> attempt) {
+        long timeout;
+        long deadline;
+        boolean deadlined;
+        synchronized(this) {
+            timeout = timeoutNanos;
+            deadline = deadlineNanos;
+            deadlined = hasDeadline;
+        }
+        if(cancelOnTimeout) {
+            attempt.setCancelOnTimeout(true);
+        }
+        synchronized(attempt) {
+            if(timeout >= 0 && (attempt.timeoutNanos < 0 || timeout < attempt.timeoutNanos)) {
+                attempt.timeoutNanos = timeout;
+                attempt.timed = true;
+            }
+            if(deadlined && (!attempt.hasDeadline || deadline - attempt.deadlineNanos < 0)) {
+                attempt.deadlineNanos = deadline;
+                attempt.hasDeadline = true;
+                attempt.timed = true;
+            }
+            if(attempt.timed) {
+                attempt.armTimer();
+            }
+        }
+    }
+
+    private synchronized void disarmTimer() {
+        if(timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private void timeout() {
+        if(!isDone()) {
+            // cancel() の中で done() が呼び出されるので、例外はキャンセルする前に設定します。
+            // 同時に正常に完了してキャンセルできなかった場合は、タイムアウトしなかったことにします。
+            timeoutException = new TaskTimeoutException("Task timed out");
+            if(!cancel(true)) {
+                timeoutException = null;
+            }
+        }
+    }
+
+    // タイムアウトによって失敗として扱われる場合、その例外を返します。キャンセルされていないタスクはタイムアウトしていません。
+    final TaskTimeoutException getTimeoutFailure() {
+        return (cancelOnTimeout || !isCancelled()) ? null : timeoutException;
+    }
+
+    private void setCancelled() {
+        TaskTimeoutException t = getTimeoutFailure();
+        if(t != null) {
+            _setException(t);
+            setState(State.FAILED);
+        } else {
+            setState(State.CANCELLED);
+        }
+    }
+
     protected void updateValue(V value) {
-        if(Looper.getMainLooper().getThread() == Thread.currentThread()) {
+        if(isCallbackThread()) {
             this.value = value;
         } else {
-            if(valueUpdate.getAndSet(value) == null) {
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        Task.this.value = valueUpdate.getAndSet(null);
+            valueUpdate = value;
+            postTransition(TRANSITION_VALUE);
+        }
+    }
+
+    protected void updateProgress(long workDone, long max) {
+        if(isCallbackThread()) {
+            this.workDone = workDone;
+            this.totalWork = max;
+            progressUpdated();
+        } else {
+            totalWorkUpdate = max;
+            workDoneUpdate = workDone;
+            postUpdate(UPDATE_PROGRESS);
+        }
+    }
+
+    protected void updateMessage(String message) {
+        if(isCallbackThread()) {
+            this.message = message;
+            messageUpdated();
+        } else {
+            messageUpdate = message;
+            postUpdate(UPDATE_MESSAGE);
+        }
+    }
+
+    // 途中の結果を公開します。型付きの publish() は ProgressTask と ProgressCallable.Reporter で提供します。
+    final void publishPartial(Object partial) {
+        if(isCallbackThread()) {
+            partialPublished(partial);
+        } else {
+            partialUpdate = partial;
+            postUpdate(UPDATE_PARTIAL);
+        }
+    }
+
+    /** 状態の遷移とコールバックを呼び出すエグゼキューターを指定します。null の場合はメインスレッドです。
+     * Async.DIRECT を指定すると、遷移を発生させたスレッド（通常はワーカースレッド）でそのまま呼び出されます。
+     * タスクの開始前に指定してください。
+     *
+     * @param executor コールバックを呼び出すエグゼキューター
+     */
+    public final void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    public final Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    // 後段のステージを作成したときに呼び出します。以降の遷移はメインスレッドに投稿しません。
+    final void setIntermediate() {
+        intermediate = true;
+    }
+
+    // 現在のスレッドがコールバックを呼び出すスレッドであれば、投稿せずにその場で処理できます。
+    final boolean isCallbackThread() {
+        Executor executor = callbackExecutor;
+        if(executor == null) {
+            return MainThread.isCurrentThread();
+        } else if(executor == Async.DIRECT) {
+            return true;
+        } else if(executor instanceof ThreadBoundExecutor) {
+            return ((ThreadBoundExecutor)executor).isCurrentThread();
+        }
+        return false;
+    }
+
+    final ProgressCallable.Reporter<Object> newReporter() {
+        return new ProgressCallable.Reporter<Object>() {
+            @Override
+            public void updateProgress(long workDone, long max) {
+                Task.this.updateProgress(workDone, max);
+            }
+
+            @Override
+            public void updateMessage(String message) {
+                Task.this.updateMessage(message);
+            }
+
+            @Override
+            public void publish(Object partial) {
+                publishPartial(partial);
+            }
+        };
+    }
+
+    private void postUpdate(int update) {
+        for(;;) {
+            int pending = updates;
+            if(updatesUpdater.compareAndSet(this, pending, pending | update)) {
+                if(pending == 0) {
+                    Executor executor = callbackExecutor;
+                    if(executor == null) {
+                        UpdateQueue.enqueue(this);
+                    } else if(isCallbackThread()) {
+                        deliverUpdates();
+                    } else {
+                        executor.execute(getUpdateDrain());
                     }
-                });
+                }
+                return;
+            }
+        }
+    }
+
+    // フレームごとに、配送待ちの更新のうち最新の値だけを適用します。
+    final void deliverUpdates() {
+        int pending = updatesUpdater.getAndSet(this, 0);
+        if(pending == 0 || isTerminal(getState())) {
+            return;
+        }
+        if((pending & UPDATE_PROGRESS) != 0) {
+            this.workDone = workDoneUpdate;
+            this.totalWork = totalWorkUpdate;
+            progressUpdated();
+        }
+        if((pending & UPDATE_MESSAGE) != 0) {
+            this.message = messageUpdate;
+            messageUpdated();
+        }
+        if((pending & UPDATE_PARTIAL) != 0) {
+            partialPublished(partialUpdate);
+        }
+    }
+
+    private void postTransition(int transition) {
+        for(;;) {
+            int pending = transitions;
+            if(transitionsUpdater.compareAndSet(this, pending, pending | transition)) {
+                if(pending == 0) {
+                    Executor executor = callbackExecutor;
+                    if(intermediate) {
+                        // 中間ステージにはコールバックがないので、遷移した状態をその場で適用するだけです。
+                        deliverTransitions();
+                    } else if(executor == null) {
+                        // メインスレッドで run() された場合もキューを経由します。
+                        // 呼び出し元がコールバックを設定し終える前に、完了を配送しないためです。
+                        TransitionQueue.enqueue(this);
+                    } else if(isCallbackThread()) {
+                        deliverTransitions();
+                    } else {
+                        executor.execute(getTransitionDrain());
+                    }
+                }
+                return;
             }
         }
     }
 
-    private void checkThread() {
-        if(started && Looper.getMainLooper().getThread() != Thread.currentThread()) {
-            throw new IllegalStateException("Task must only be used from the Main Thread");
+    // メインスレッド以外のエグゼキューターを指定した場合だけ、配送用の Runnable を作成します。
+    private synchronized Runnable getTransitionDrain() {
+        if(transitionDrain == null) {
+            transitionDrain = new Runnable() {
+                @Override
+                public void run() {
+                    deliverTransitions();
+                }
+            };
+        }
+        return transitionDrain;
+    }
+
+    private synchronized Runnable getUpdateDrain() {
+        if(updateDrain == null) {
+            updateDrain = new Runnable() {
+                @Override
+                public void run() {
+                    deliverUpdates();
+                }
+            };
+        }
+        return updateDrain;
+    }
+
+    // 配送待ちの遷移をまとめてコールバック用のスレッドで適用します。
+    // SCHEDULED → RUNNING → SUCCEEDED が1回の配送にまとまる場合もあります。
+    final void deliverTransitions() {
+        int pending = transitionsUpdater.getAndSet(this, 0);
+        if((pending & TRANSITION_STARTED) != 0) {
+            setState(State.SCHEDULED);
+            setState(State.RUNNING);
+        }
+        if((pending & TRANSITION_VALUE) != 0) {
+            this.value = valueUpdate;
+        }
+        if((pending & TRANSITION_CANCELLED) != 0 || ((pending & TRANSITION_DONE) != 0 && isCancelled())) {
+            // キャンセルと完了が同時に配送待ちの場合や、完了を投稿した後でキャンセルされた場合はキャンセルを優先します。
+            setCancelled();
+        } else if((pending & TRANSITION_DONE) != 0) {
+            // 完了の前に、まだフレームを待っている最後の更新を届けます。
+            deliverUpdates();
+            if(failure != null) {
+                _setException(failure);
+                setState(State.FAILED);
+            } else {
+                this.value = result;
+                setState(State.SUCCEEDED);
+            }
         }
     }
 
@@ -167,41 +660,61 @@ public abstract class Task<V> extends FutureTask<V> implements Worker<V> {
 
         @Override
         public V call() throws Exception {
+            task.startNanos = System.nanoTime();
             task.started = true;
-            task.handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    task.setState(State.SCHEDULED);
-                    task.setState(State.RUNNING);
-                }
-            });
+            TaskListener l = listener;
+            if(l != null) {
+                l.onStarted(task, task.startNanos);
+            }
+            if(task.timed) {
+                task.armTimer();
+            }
+            task.postTransition(TRANSITION_STARTED);
+            TaskTracer tr = tracer;
+            if(tr != null) {
+                tr.beginCall(task);
+            }
+            ScheduledFuture<?> watch = (CallbackWatchdog.installed != null) ? CallbackWatchdog.watchTask(task) : null;
             try {
-                final V result = task.call();
+                V result = task.call();
+                finished(l);
                 if(!task.isCancelled()) {
-                    task.handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            task.updateValue(result);
-                            task.setState(State.SUCCEEDED);
-                        }
-                    });
+                    task.result = result;
+                    task.postTransition(TRANSITION_DONE);
                     return result;
                 } else {
                     return null;
                 }
-            } catch(final Throwable t) {
-                task.handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        task._setException(t);
-                        task.setState(State.FAILED);
-                    }
-                });
+            } catch(Throwable t) {
+                finished(l);
+                // キャンセル（タイムアウトを含む）による割り込みで終わった場合、結果はキャンセルの遷移が届けます。
+                // ここで完了を投稿すると、TaskTimeoutException の代わりに InterruptedException が届いてしまいます。
+                if(!task.isCancelled()) {
+                    task.failure = t;
+                    task.postTransition(TRANSITION_DONE);
+                }
                 if(t instanceof Exception) {
                     throw (Exception)t;
                 } else {
                     throw new Exception(t);
                 }
+            } finally {
+                if(watch != null) {
+                    watch.cancel(false);
+                }
+                if(tr != null) {
+                    tr.endCall(task);
+                }
+                if(task.timed) {
+                    task.disarmTimer();
+                }
+            }
+        }
+
+        // 終了の遷移を投稿する前に記録します。DIRECT の場合は投稿した時点で配送まで進むためです。
+        private void finished(TaskListener l) {
+            if(l != null) {
+                l.onFinished(task, System.nanoTime());
             }
         }
     }
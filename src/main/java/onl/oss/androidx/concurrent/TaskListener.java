@@ -0,0 +1,25 @@
+package onl.oss.androidx.concurrent;
+
+/** タスクの各段階の時刻を受け取るリスナーです。Async.setTaskListener() で登録します。
+ * 時刻はすべて System.nanoTime() の値です。
+ * リスナーはワーカースレッドやメインスレッドから直接呼び出されるので、処理は短くし、例外をスローしないでください。
+ */
+public interface TaskListener {
+
+    /** タスクがエグゼキューターに投入されたときに、投入したスレッドで呼び出されます。
+     * 前段のステージから続けて実行されるステージでは呼び出されません。
+     */
+    void onSubmitted(Task<?> task, long nanos);
+
+    /** ワーカースレッドで call() を開始する直前に呼び出されます。 */
+    void onStarted(Task<?> task, long nanos);
+
+    /** ワーカースレッドで call() から戻った直後に呼び出されます。 */
+    void onFinished(Task<?> task, long nanos);
+
+    /** コールバック用のスレッドで、終了状態への遷移とそのコールバックを呼び出す直前に呼び出されます。 */
+    void onDeliveryStarted(Task<?> task, long nanos);
+
+    /** コールバック用のスレッドで、終了状態のコールバックから戻った直後に呼び出されます。 */
+    void onDeliveryFinished(Task<?> task, long nanos);
+}
@@ -0,0 +1,112 @@
+package onl.oss.androidx.concurrent;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** ライフサイクル・オーナーに結び付いた非同期処理の範囲です。
+ * オーナーが破棄されると、範囲内で実行中のすべての処理を cancel(true) で中断します。
+ * また、オーナーの状態が指定した状態を下回っている間は、コールバックを呼び出しません。
+ */
+public class TaskScope implements LifecycleEventObserver {
+
+    private static final Map<LifecycleOwner, TaskScope> scopes = new WeakHashMap<LifecycleOwner, TaskScope>();
+
+    /** 指定したライフサイクル・オーナーの範囲を返します。範囲はオーナーごとに1つだけ作成されます。
+     * このメソッドはメインスレッドから呼び出す必要があります。
+     *
+     * @param owner ライフサイクル・オーナー
+     * @return 範囲
+     */
+    public static TaskScope of(@NonNull LifecycleOwner owner) {
+        TaskScope scope = scopes.get(owner);
+        if(scope == null) {
+            scope = new TaskScope(owner.getLifecycle());
+            if(!scope.destroyed) {
+                scopes.put(owner, scope);
+                owner.getLifecycle().addObserver(scope);
+            }
+        }
+        return scope;
+    }
+
+    private final Lifecycle lifecycle;
+    private final Set<Cancellable> children = Collections.newSetFromMap(new ConcurrentHashMap<Cancellable, Boolean>());
+    private volatile Lifecycle.State minimumState = Lifecycle.State.CREATED;
+    private volatile boolean destroyed;
+
+    private TaskScope(Lifecycle lifecycle) {
+        this.lifecycle = lifecycle;
+        this.destroyed = lifecycle.getCurrentState() == Lifecycle.State.DESTROYED;
+    }
+
+    /** コールバックを呼び出すために必要なオーナーの最低限の状態を指定します。既定値は CREATED です。
+     *
+     * @param state 最低限の状態
+     * @return この範囲
+     */
+    public TaskScope setMinimumState(@NonNull Lifecycle.State state) {
+        this.minimumState = state;
+        return this;
+    }
+
+    public Lifecycle.State getMinimumState() {
+        return minimumState;
+    }
+
+    public AsyncRunnable execute(LooseRunnable runnable) {
+        return Async.execute(this, Async.Priority.NORMAL, runnable);
+    }
+
+    public <V> AsyncCallable<V> execute(Callable<V> callable) {
+        return Async.execute(this, Async.Priority.NORMAL, callable);
+    }
+
+    public int size() {
+        return children.size();
+    }
+
+    public void cancelAll() {
+        List<Cancellable> list = new ArrayList<Cancellable>(children);
+        for(Cancellable child : list) {
+            child.cancel();
+        }
+    }
+
+    boolean isActive() {
+        return !destroyed && lifecycle.getCurrentState().isAtLeast(minimumState);
+    }
+
+    // 既に破棄されている場合は、追加せずに false を返します。
+    boolean add(Cancellable child) {
+        if(destroyed) {
+            return false;
+        }
+        children.add(child);
+        return true;
+    }
+
+    void remove(Cancellable child) {
+        children.remove(child);
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if(event == Lifecycle.Event.ON_DESTROY) {
+            destroyed = true;
+            source.getLifecycle().removeObserver(this);
+            scopes.remove(source);
+            cancelAll();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.TimeoutException;
+
+@SuppressWarnings("serial")
+public class TaskTimeoutException extends TimeoutException {
+    public TaskTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package onl.oss.androidx.concurrent;
+
+/** タスクの実行とコールバックをトレースの区間として記録するためのインターフェースです。Async.setTaskTracer() で登録します。
+ * beginCall() と endCall()、beginCallback() と endCallback() は、それぞれ同じスレッドで入れ子になるように呼び出されます。
+ * submitted() と completed() は異なるスレッドから呼び出されるので、同じ id で非同期の区間を対応付けてください。
+ */
+public interface TaskTracer {
+
+    /** タスクが投入されたときに、投入したスレッドで呼び出されます。
+     * completed() には、ここで渡されたものと同じ name と id が渡されます。
+     */
+    void submitted(Task<?> task, String name, int id);
+
+    /** ワーカースレッドで call() を開始する直前に呼び出されます。 */
+    void beginCall(Task<?> task);
+
+    /** ワーカースレッドで call() から戻った直後に呼び出されます。 */
+    void endCall(Task<?> task);
+
+    /** コールバック用のスレッドで、状態のコールバック（scheduled, running, succeeded, failed, cancelled）を呼び出す直前に呼び出されます。 */
+    void beginCallback(Task<?> task, Worker.State state);
+
+    /** コールバック用のスレッドで、状態のコールバックから戻った直後に呼び出されます。 */
+    void endCallback(Task<?> task, Worker.State state);
+
+    /** 投入されたタスクの終了状態のコールバックが完了したときに呼び出されます。 */
+    void completed(Task<?> task, String name, int id);
+}
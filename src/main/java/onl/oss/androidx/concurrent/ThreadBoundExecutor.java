@@ -0,0 +1,10 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.Executor;
+
+// 特定のスレッドでコマンドを実行するエグゼキューターです。
+// callbackOn() に指定した場合、そのスレッドからの遷移は投稿せずにその場で処理されます。
+interface ThreadBoundExecutor extends Executor {
+
+    boolean isCurrentThread();
+}
@@ -0,0 +1,165 @@
+package onl.oss.androidx.concurrent;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** タスクのトレースをリング・バッファーに記録する TaskTracer です。
+ * 記録したイベントは Chrome のトレース・イベント形式の JSON として書き出せるので、chrome://tracing や Perfetto UI で表示できます。
+ * バッファーが一杯になると、古いイベントから上書きされます。
+ */
+public class TraceRecorder implements TaskTracer {
+
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    private final int capacity;
+    private final AtomicReferenceArray<Event> events;
+    private final AtomicLong next = new AtomicLong();
+    private final long originNanos = System.nanoTime();
+
+    public TraceRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TraceRecorder(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.events = new AtomicReferenceArray<Event>(capacity);
+    }
+
+    private void record(char phase, String name, int id) {
+        Event event = new Event(phase, name, id, System.nanoTime() - originNanos, Thread.currentThread());
+        events.set((int)(next.getAndIncrement() % capacity), event);
+    }
+
+    @Override
+    public void submitted(Task<?> task, String name, int id) {
+        record('b', name, id);
+    }
+
+    @Override
+    public void beginCall(Task<?> task) {
+        record('B', task.getTraceName(), 0);
+    }
+
+    @Override
+    public void endCall(Task<?> task) {
+        record('E', task.getTraceName(), 0);
+    }
+
+    @Override
+    public void beginCallback(Task<?> task, Worker.State state) {
+        record('B', task.getCallbackTraceName(state), 0);
+    }
+
+    @Override
+    public void endCallback(Task<?> task, Worker.State state) {
+        record('E', task.getCallbackTraceName(state), 0);
+    }
+
+    @Override
+    public void completed(Task<?> task, String name, int id) {
+        record('e', name, id);
+    }
+
+    public void clear() {
+        for(int i = 0; i < capacity; i++) {
+            events.set(i, null);
+        }
+    }
+
+    /** 記録したイベントを Chrome のトレース・イベント形式の JSON でファイルに書き出します。
+     *
+     * @param file 出力先のファイル
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void dump(File file) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writeTo(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        List<Event> list = new ArrayList<Event>(capacity);
+        for(int i = 0; i < capacity; i++) {
+            Event event = events.get(i);
+            if(event != null) {
+                list.add(event);
+            }
+        }
+        Collections.sort(list, new Comparator<Event>() {
+            @Override
+            public int compare(Event a, Event b) {
+                return a.nanos < b.nanos ? -1 : (a.nanos == b.nanos ? 0 : 1);
+            }
+        });
+
+        writer.write("{\"traceEvents\":[");
+        for(int i = 0; i < list.size(); i++) {
+            Event event = list.get(i);
+            if(i > 0) {
+                writer.write(",");
+            }
+            writer.write("\n{\"name\":\"");
+            writeEscaped(writer, event.name);
+            writer.write("\",\"cat\":\"task\",\"ph\":\"");
+            writer.write(event.phase);
+            writer.write("\",\"ts\":");
+            writer.write(Long.toString(event.nanos / 1000L));
+            writer.write(".");
+            writer.write(Long.toString(event.nanos / 100L % 10L));
+            writer.write(",\"pid\":0,\"tid\":");
+            writer.write(Long.toString(event.threadId));
+            if(event.phase == 'b' || event.phase == 'e') {
+                writer.write(",\"id\":");
+                writer.write(Integer.toString(event.id));
+            }
+            writer.write("}");
+        }
+        writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+    }
+
+    private static void writeEscaped(Writer writer, String s) throws IOException {
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if(c < 0x20) {
+                writer.write(String.format("\\u%04x", (int)c));
+            } else {
+                writer.write(c);
+            }
+        }
+    }
+
+    private static final class Event {
+        private final char phase;
+        private final String name;
+        private final int id;
+        private final long nanos;
+        private final long threadId;
+
+        private Event(char phase, String name, int id, long nanos, Thread thread) {
+            this.phase = phase;
+            this.name = name;
+            this.id = id;
+            this.nanos = nanos;
+            this.threadId = thread.getId();
+        }
+    }
+}
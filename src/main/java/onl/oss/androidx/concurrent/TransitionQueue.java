@@ -0,0 +1,66 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// 全タスクの状態遷移をメインスレッドへ届けるためのキューです。
+// タスク自身をノードとして連結するロックフリーのスタックで、
+// 空のスタックにタスクが積まれたときだけメッセージを1つ投稿し、溜まった遷移をまとめて配送します。
+final class TransitionQueue {
+
+    private static final AtomicReference<Task<?>> head = new AtomicReference<Task<?>>();
+
+    private static final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private TransitionQueue() {
+    }
+
+    static void enqueue(Task<?> task) {
+        Task<?> h;
+        do {
+            h = head.get();
+            task.nextTransition = h;
+        } while(!head.compareAndSet(h, task));
+
+        if(h == null) {
+            MainThread.post(drain);
+        }
+    }
+
+    private static void drain() {
+        // スタックを丸ごと取り出し、投入順に並べ替えます。
+        Task<?> list = head.getAndSet(null);
+        Task<?> ordered = null;
+        while(list != null) {
+            Task<?> next = list.nextTransition;
+            list.nextTransition = ordered;
+            ordered = list;
+            list = next;
+        }
+
+        Task<?> task = ordered;
+        while(task != null) {
+            Task<?> next = task.nextTransition;
+            task.nextTransition = null;
+            boolean delivered = false;
+            try {
+                task.deliverTransitions();
+                delivered = true;
+            } finally {
+                if(!delivered) {
+                    // コールバックが例外をスローした場合でも、残りのタスクの遷移は失わないようにします。
+                    while(next != null) {
+                        Task<?> rest = next.nextTransition;
+                        enqueue(next);
+                        next = rest;
+                    }
+                }
+            }
+            task = next;
+        }
+    }
+}
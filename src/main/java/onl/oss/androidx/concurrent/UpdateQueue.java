@@ -0,0 +1,63 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// 進捗やメッセージ、部分的な結果の更新をメインスレッドへ届けるためのキューです。
+// TransitionQueue と同じ構造ですが、配送は表示フレームごとに1回に間引かれます。
+final class UpdateQueue {
+
+    private static final AtomicReference<Task<?>> head = new AtomicReference<Task<?>>();
+
+    private static final Runnable frame = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private UpdateQueue() {
+    }
+
+    static void enqueue(Task<?> task) {
+        Task<?> h;
+        do {
+            h = head.get();
+            task.nextUpdate = h;
+        } while(!head.compareAndSet(h, task));
+
+        if(h == null) {
+            MainThread.postOnNextFrame(frame);
+        }
+    }
+
+    private static void drain() {
+        Task<?> list = head.getAndSet(null);
+        Task<?> ordered = null;
+        while(list != null) {
+            Task<?> next = list.nextUpdate;
+            list.nextUpdate = ordered;
+            ordered = list;
+            list = next;
+        }
+
+        Task<?> task = ordered;
+        while(task != null) {
+            Task<?> next = task.nextUpdate;
+            task.nextUpdate = null;
+            boolean delivered = false;
+            try {
+                task.deliverUpdates();
+                delivered = true;
+            } finally {
+                if(!delivered) {
+                    while(next != null) {
+                        Task<?> rest = next.nextUpdate;
+                        enqueue(next);
+                        next = rest;
+                    }
+                }
+            }
+            task = next;
+        }
+    }
+}
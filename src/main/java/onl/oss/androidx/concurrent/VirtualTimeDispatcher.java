@@ -0,0 +1,223 @@
+package onl.oss.androidx.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/** 仮想時間で動作する決定的な MainThreadDispatcher です。
+ * 作成したスレッドをメインスレッドとして扱い、投稿されたコマンドは runAll() や advanceBy() を呼び出したときにだけ実行されます。
+ * postOnNextFrame() で投稿されたコマンドは、仮想時間が次のフレームの時刻に達したときに実行されます。
+ * Async.setMainThreadDispatcher() で指定している間は、タイムアウト、期限、再試行の待機、debounce、AsyncBatcher の maxDelay、キャッシュの有効期限も仮想時間で計られます。
+ * 期限は System.nanoTime() ではなく now() を基準に指定してください。
+ * これらの予定は advanceBy() で仮想時間が予定の時刻に達したときに、このスレッドで実行されます。runAll() では実行されません。
+ * 予定の時刻は、予定を登録した時点の仮想時間からの相対時間です。
+ * CallbackWatchdog の予算は実際の実行時間を計るものなので、仮想時間ではなく実時間で計られます。
+ */
+public class VirtualTimeDispatcher implements MainThreadDispatcher {
+
+    public static final long DEFAULT_FRAME_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private final Thread owner = Thread.currentThread();
+    private final long frameIntervalNanos;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+    private final ArrayDeque<Runnable> frameQueue = new ArrayDeque<Runnable>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<Timer>();
+    private long nowNanos;
+    private long nextFrameNanos;
+    private long timerSequence;
+
+    public VirtualTimeDispatcher() {
+        this(DEFAULT_FRAME_INTERVAL_NANOS);
+    }
+
+    public VirtualTimeDispatcher(long frameIntervalNanos) {
+        if(frameIntervalNanos <= 0) {
+            throw new IllegalArgumentException("frameIntervalNanos must be positive: " + frameIntervalNanos);
+        }
+        this.frameIntervalNanos = frameIntervalNanos;
+        this.nextFrameNanos = frameIntervalNanos;
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return owner == Thread.currentThread();
+    }
+
+    @Override
+    public synchronized void post(Runnable runnable) {
+        queue.addLast(runnable);
+    }
+
+    @Override
+    public synchronized void postAtFrontOfQueue(Runnable runnable) {
+        queue.addFirst(runnable);
+    }
+
+    @Override
+    public synchronized void postOnNextFrame(Runnable runnable) {
+        frameQueue.addLast(runnable);
+    }
+
+    public synchronized long now() {
+        return nowNanos;
+    }
+
+    public synchronized int size() {
+        return queue.size() + frameQueue.size();
+    }
+
+    // Scheduler から呼び出されます。どのスレッドからでも登録できます。
+    synchronized ScheduledFuture<?> schedule(Runnable runnable, long delay, TimeUnit unit) {
+        Timer timer = new Timer(runnable, nowNanos + Math.max(0, unit.toNanos(delay)), timerSequence++);
+        timers.add(timer);
+        return timer;
+    }
+
+    private synchronized void removeTimer(Timer timer) {
+        timers.remove(timer);
+    }
+
+    /** キューの先頭のコマンドを1つ実行します。
+     *
+     * @return コマンドを実行した場合は true
+     */
+    public boolean runNext() {
+        checkThread();
+        Runnable runnable;
+        synchronized(this) {
+            runnable = queue.pollFirst();
+        }
+        if(runnable == null) {
+            return false;
+        }
+        runnable.run();
+        return true;
+    }
+
+    /** キューが空になるまでコマンドを実行します。実行中に投稿されたコマンドも実行されます。仮想時間は進みません。
+     *
+     * @return 実行したコマンドの数
+     */
+    public int runAll() {
+        int count = 0;
+        while(runNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    /** 仮想時間を進めます。途中のフレームの時刻ごとに、キューのコマンドを実行した後でフレームのコマンドを実行します。
+     *
+     * @param time 進める時間
+     * @param unit time の単位
+     * @return 実行したコマンドの数
+     */
+    public int advanceBy(long time, TimeUnit unit) {
+        checkThread();
+        long target;
+        synchronized(this) {
+            target = nowNanos + unit.toNanos(time);
+        }
+        int count = runAll();
+        for(;;) {
+            Timer timer = null;
+            ArrayDeque<Runnable> frame = null;
+            synchronized(this) {
+                // 同じ時刻の予定とフレームでは、予定を先に実行します。
+                Timer next = timers.peek();
+                if(next != null && next.dueNanos - target <= 0 && next.dueNanos - nextFrameNanos <= 0) {
+                    timers.poll();
+                    if(next.dueNanos - nowNanos > 0) {
+                        nowNanos = next.dueNanos;
+                    }
+                    timer = next;
+                } else if(nextFrameNanos - target > 0) {
+                    nowNanos = target;
+                    break;
+                } else {
+                    nowNanos = nextFrameNanos;
+                    nextFrameNanos += frameIntervalNanos;
+                    frame = new ArrayDeque<Runnable>(frameQueue);
+                    frameQueue.clear();
+                }
+            }
+            if(timer != null) {
+                timer.run();
+                count++;
+            } else {
+                // フレーム中に投稿されたフレームのコマンドは、次のフレームで実行します。
+                for(Runnable runnable : frame) {
+                    runnable.run();
+                    count++;
+                }
+            }
+            count += runAll();
+        }
+        return count;
+    }
+
+    /** 次のフレームの時刻まで仮想時間を進めます。
+     *
+     * @return 実行したコマンドの数
+     */
+    public int advanceToNextFrame() {
+        long delta;
+        synchronized(this) {
+            delta = nextFrameNanos - nowNanos;
+        }
+        return advanceBy(delta, TimeUnit.NANOSECONDS);
+    }
+
+    // 仮想時間の予定です。例外は ScheduledThreadPoolExecutor と同じように Future に閉じ込められます。
+    private final class Timer extends FutureTask<Void> implements ScheduledFuture<Void> {
+        private final long dueNanos;
+        private final long sequence;
+
+        private Timer(Runnable runnable, long dueNanos, long sequence) {
+            super(runnable, null);
+            this.dueNanos = dueNanos;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - now(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if(other == this) {
+                return 0;
+            }
+            long diff;
+            if(other instanceof Timer) {
+                Timer timer = (Timer)other;
+                diff = dueNanos - timer.dueNanos;
+                if(diff == 0) {
+                    diff = sequence - timer.sequence;
+                }
+            } else {
+                diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            }
+            return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if(cancelled) {
+                removeTimer(this);
+            }
+            return cancelled;
+        }
+    }
+
+    private void checkThread() {
+        if(!isMainThread()) {
+            throw new IllegalStateException("VirtualTimeDispatcher must only be driven from the thread that created it");
+        }
+    }
+}
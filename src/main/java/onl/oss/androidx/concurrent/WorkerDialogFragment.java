@@ -22,6 +22,7 @@ import onl.oss.androidx.lifecycle.RestorableViewModelProvider;
 public abstract class WorkerDialogFragment<V> extends DialogFragment {
 
     private Callable<V> worker;
+    private ProgressCallable<V, Object> progressWorker;
     private WorkerResultViewModel<V> workerResultViewModel;
 
     public String getRequestKey() {
@@ -29,7 +30,8 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
     }
 
     protected void setWorkerResult(WorkerResult<V> result) {
-        getParentFragmentManager().setFragmentResult(getRequestKey(), result.toBundle());
+        Bundle bundle = isResultHandleEnabled() ? result.toHandleBundle(requireActivity()) : result.toBundle();
+        getParentFragmentManager().setFragmentResult(getRequestKey(), bundle);
     }
 
     /** 指定したフラグメントのフラグメント・マネージャーにダイアログ・フラグメントを追加して、ダイアログを表示します。
@@ -63,6 +65,39 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
         return true;
     }
 
+    /** 指定したフラグメントのフラグメント・マネージャーにダイアログ・フラグメントを追加して、ダイアログを表示します。
+     * 指定したリクエスト・キーはフラグメントのタグとしても使用されます。
+     * 指定したリクエスト・キーのフラグメントが既に存在している場合、このメソッドは何も実行しません。
+     * 処理から報告された進捗は onProgressUpdated、onMessageUpdated で受け取ることができます。
+     *
+     * @param fragment フラグメント
+     * @param requestKey setFragmentResultListenerで結果を受け取る時に使用するリクエスト・キー。
+     * @param worker 進捗を報告しながら非同期で実行する処理
+     * @return フラグメントが追加された場合は true、フラグメントが既に存在する場合は false
+     */
+    public <P> boolean show(@NonNull Fragment fragment, @NonNull String requestKey, @NonNull ProgressCallable<V, P> worker) {
+        return show(fragment.getParentFragmentManager(), requestKey, worker);
+    }
+
+    /** 指定したフラグメント・マネージャーにダイアログ・フラグメントを追加して、ダイアログを表示します。
+     * 指定したリクエスト・キーはフラグメントのタグとしても使用されます。
+     * 指定したリクエスト・キーのフラグメントが既に存在している場合、このメソッドは何も実行しません。
+     * 処理から報告された進捗は onProgressUpdated、onMessageUpdated で受け取ることができます。
+     *
+     * @param manager フラグメント・マネージャー
+     * @param requestKey setFragmentResultListenerで結果を受け取る時に使用するリクエスト・キー
+     * @param worker 進捗を報告しながら非同期で実行する処理
+     * @return フラグメントが追加される場合は true、フラグメントが既に存在する場合は false
+     */
+    public <P> boolean show(@NonNull FragmentManager manager, @NonNull String requestKey, @NonNull ProgressCallable<V, P> worker) {
+        if(manager.findFragmentByTag(requestKey) != null) {
+            return false;
+        }
+        setProgressWorker(worker);
+        super.show(manager, requestKey);
+        return true;
+    }
+
     /** 指定したフラグメントのフラグメント・マネージャーにダイアログ・フラグメントを追加して、ダイアログを即座に表示します。
      * 指定したリクエスト・キーはフラグメントのタグとしても使用されます。
      * 指定したリクエスト・キーのフラグメントが既に存在している場合、このメソッドは何も実行しません。
@@ -94,6 +129,45 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
         return true;
     }
 
+    /** 指定したフラグメントのフラグメント・マネージャーにダイアログ・フラグメントを追加して、ダイアログを即座に表示します。
+     * 指定したリクエスト・キーはフラグメントのタグとしても使用されます。
+     * 指定したリクエスト・キーのフラグメントが既に存在している場合、このメソッドは何も実行しません。
+     * 処理から報告された進捗は onProgressUpdated、onMessageUpdated で受け取ることができます。
+     *
+     * @param fragment フラグメント
+     * @param requestKey setFragmentResultListenerで結果を受け取る時に使用するリクエスト・キー
+     * @param worker 進捗を報告しながら非同期で実行する処理
+     * @return フラグメントが追加された場合は true、フラグメントが既に存在する場合は false
+     */
+    public <P> boolean showNow(@NonNull Fragment fragment, @NonNull String requestKey, @NonNull ProgressCallable<V, P> worker) {
+        return showNow(fragment.getParentFragmentManager(), requestKey, worker);
+    }
+
+    /** 指定したフラグメント・マネージャーにダイアログ・フラグメントを追加して、ダイアログを即座に表示します。
+     * 指定したリクエスト・キーはフラグメントのタグとしても使用されます。
+     * 指定したリクエスト・キーのフラグメントが既に存在している場合、このメソッドは何も実行しません。
+     * 処理から報告された進捗は onProgressUpdated、onMessageUpdated で受け取ることができます。
+     *
+     * @param manager フラグメント・マネージャー
+     * @param requestKey setFragmentResultListenerで結果を受け取る時に使用するリクエスト・キー
+     * @param worker 進捗を報告しながら非同期で実行する処理
+     * @return フラグメントが追加された場合は true、フラグメントが既に存在する場合は false
+     */
+    public <P> boolean showNow(@NonNull FragmentManager manager, @NonNull String requestKey, @NonNull ProgressCallable<V, P> worker) {
+        if(manager.findFragmentByTag(requestKey) != null) {
+            return false;
+        }
+        setProgressWorker(worker);
+        super.showNow(manager, requestKey);
+        return true;
+    }
+
+    private <P> void setProgressWorker(ProgressCallable<V, P> worker) {
+        @SuppressWarnings("unchecked")
+        ProgressCallable<V, Object> w = (ProgressCallable<V, Object>)worker;
+        this.progressWorker = w;
+    }
+
 
     @NonNull
     @Override
@@ -104,12 +178,13 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
     }
 
     protected void onSetupWorker(Bundle savedInstanceState) {
-        if(savedInstanceState == null && worker == null) {
+        if(savedInstanceState == null && worker == null && progressWorker == null) {
             throw new IllegalStateException("worker is null");
         }
         @SuppressWarnings("unchecked")
         WorkerResultViewModel<V> vm = (WorkerResultViewModel<V>)new RestorableViewModelProvider(requireActivity(), savedInstanceState).get(WorkerResultViewModel.class);
         workerResultViewModel = vm;
+        workerResultViewModel.setPersistencePolicy(onCreatePersistencePolicy());
         workerResultViewModel.getState().observe(requireActivity(), new Observer<Worker.State>() {
             @Override
             public void onChanged(Worker.State state) {
@@ -121,11 +196,14 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
                     case RUNNING:
                         break;
                     case SUCCEEDED:
-                        setWorkerResult(new WorkerResult<V>(workerResultViewModel.getValue().getValue()));
+                        setWorkerResult(getSucceededResult());
+                        // 結果を届けたので、退避ファイルはもう必要ありません。
+                        workerResultViewModel.releaseStorage();
                         dismiss();
                         break;
                     case FAILED:
                         setWorkerResult(new WorkerResult<V>(workerResultViewModel.getException().getValue()));
+                        workerResultViewModel.releaseStorage();
                         dismiss();
                         break;
                     case CANCELLED:
@@ -136,7 +214,19 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
                 }
             }
         });
-        if(worker == null) {
+        workerResultViewModel.getProgress().observe(requireActivity(), new Observer<Double>() {
+            @Override
+            public void onChanged(Double progress) {
+                onProgressUpdated(progress);
+            }
+        });
+        workerResultViewModel.getMessage().observe(requireActivity(), new Observer<String>() {
+            @Override
+            public void onChanged(String message) {
+                onMessageUpdated(message);
+            }
+        });
+        if(worker == null && progressWorker == null) {
             Task<V> task = workerResultViewModel.getTask().getValue();
             if(task == null) {
                 Worker.State state = workerResultViewModel.getState().getValue();
@@ -147,14 +237,27 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
             }
         } else {
             final Callable<V> callable = worker;
+            final ProgressCallable<V, Object> progressCallable = progressWorker;
             worker = null;
+            progressWorker = null;
             workerResultViewModel.getState().setValue(Worker.State.READY);
             Task<V> task = new Task<V>() {
                 @Override
                 protected V call() throws Exception {
+                    if(progressCallable != null) {
+                        return progressCallable.call(newReporter());
+                    }
                     return callable.call();
                 }
                 @Override
+                protected void progressUpdated() {
+                    workerResultViewModel.getProgress().setValue(getProgress());
+                }
+                @Override
+                protected void messageUpdated() {
+                    workerResultViewModel.getMessage().setValue(getMessage());
+                }
+                @Override
                 protected void scheduled() {
                     workerResultViewModel.getState().setValue(State.SCHEDULED);
                 }
@@ -182,6 +285,52 @@ public abstract class WorkerDialogFragment<V> extends DialogFragment {
         }
     }
 
+    private WorkerResult<V> getSucceededResult() {
+        // 退避された値はここで初めて読み込まれます。読み込めなかった場合は失敗として扱います。
+        V value = workerResultViewModel.getValue().getValue();
+        Throwable failure = workerResultViewModel.getValueLoadFailure();
+        if(failure != null) {
+            return new WorkerResult<V>(new ExecutionException("The task result has been lost", failure));
+        }
+        return new WorkerResult<V>(value);
+    }
+
+    /** 結果を Bundle に直接格納せず、プロセス内のレジストリを指すハンドルとして受け渡すかどうかを返します。
+     * true を返すと、結果はプロセス内ではシリアライズされず、状態の保存で Bundle が Parcel に書き込まれる場合にだけ書き込まれます。
+     * 受け取られなかった結果は、アクティビティが構成の変更以外で破棄された時点で解放されます。
+     * 既定では false で、結果は WorkerResult.toBundle() で Bundle に格納されます。
+     *
+     * @return ハンドルで受け渡す場合は true
+     */
+    protected boolean isResultHandleEnabled() {
+        return false;
+    }
+
+    /** タスクの値と例外を保存する方法を返します。
+     * 既定では、アプリのキャッシュ・ディレクトリを使用し、大きな値をファイルに退避して保存される状態を小さく保ちます。
+     * null を返すと、すべての値がそのまま保存される状態に格納されます。
+     *
+     * @return 永続化ポリシー
+     */
+    protected ResultPersistencePolicy onCreatePersistencePolicy() {
+        return new ResultPersistencePolicy(requireContext());
+    }
+
+    /** 処理の進捗が更新されたときに呼び出されます。プログレスバーの更新などに使用します。
+     * 呼び出しは表示フレームごとに最大1回に間引かれます。
+     *
+     * @param progress 0.0 から 1.0 までの進捗。進捗が不確定の場合は -1.0
+     */
+    protected void onProgressUpdated(double progress) {
+    }
+
+    /** 処理のメッセージが更新されたときに呼び出されます。
+     *
+     * @param message メッセージ
+     */
+    protected void onMessageUpdated(String message) {
+    }
+
     @Override
     public void onDismiss(@NonNull DialogInterface dialog) {
         // onDismissはアプリがバックグランドにまわったときにonStop～onDestroyのときにも呼ばれます。
@@ -5,8 +5,11 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentResultListener;
+import androidx.lifecycle.ViewModelStoreOwner;
 
+import java.io.NotActiveException;
 import java.io.Serializable;
+import java.util.concurrent.ExecutionException;
 
 @SuppressWarnings("serial")
 public class WorkerResult<V> implements Serializable {
@@ -29,6 +32,12 @@ public class WorkerResult<V> implements Serializable {
         this.state = Worker.State.FAILED;
     }
 
+    WorkerResult(Worker.State state, V value, Throwable exception) {
+        this.state = state;
+        this.value = value;
+        this.exception = exception;
+    }
+
     public Worker.State getState() {
         return state;
     }
@@ -69,15 +78,30 @@ public class WorkerResult<V> implements Serializable {
         Exception exception = null;
         try {
             if(state == Worker.State.SUCCEEDED && onSucceeded != null) {
-                onSucceeded.onSucceeded(getValue());
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    onSucceeded.onSucceeded(getValue());
+                } finally {
+                    CallbackWatchdog.end(watch, onSucceeded);
+                }
             } else if(state == Worker.State.FAILED) {
                 Throwable t = getException();
                 if(t instanceof Error) {
                     throw (Error)t;
                 }
-                onFailed.onFailed((Exception)t);
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    onFailed.onFailed((Exception)t);
+                } finally {
+                    CallbackWatchdog.end(watch, onFailed);
+                }
             } else if(state == Worker.State.CANCELLED && onCancelled != null) {
-                onCancelled.onCancelled();
+                CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                try {
+                    onCancelled.onCancelled();
+                } finally {
+                    CallbackWatchdog.end(watch, onCancelled);
+                }
             }
         } catch(Exception e) {
             exception = e;
@@ -86,7 +110,12 @@ public class WorkerResult<V> implements Serializable {
                     || (state == Worker.State.FAILED && !(getException() instanceof Error))
                     || state == Worker.State.CANCELLED)) {
                 try {
-                    onCompleted.onCompleted(state);
+                    CallbackWatchdog.Watch watch = CallbackWatchdog.begin();
+                    try {
+                        onCompleted.onCompleted(state);
+                    } finally {
+                        CallbackWatchdog.end(watch, onCompleted);
+                    }
                 } catch(Exception e) {
                     if(exception == null) {
                         exception = e;
@@ -110,12 +139,41 @@ public class WorkerResult<V> implements Serializable {
         return bundle;
     }
 
+    /** 結果そのものではなく、プロセス内のレジストリを指すハンドルだけを格納した Bundle を返します。
+     * Bundle がプロセス内で受け渡される間、値はシリアライズされません。
+     * 状態の保存などで Bundle が Parcel に書き込まれる場合にだけ、結果が書き込まれます（Parcelable の値は Parcelable のまま書き込まれます）。
+     * 結果は dispatch で受け取られた時点、または scope が構成の変更以外で破棄された時点でレジストリから解放されます。
+     * このメソッドはメインスレッドから呼び出す必要があります。
+     *
+     * @param scope 結果を保持するスコープ。通常はアクティビティ。null の場合は受け取られるまで保持されます
+     * @return ハンドルを格納した Bundle
+     */
+    public Bundle toHandleBundle(ViewModelStoreOwner scope) {
+        Bundle bundle = new Bundle();
+        bundle.putParcelable(WorkerResultHandle.class.getCanonicalName(), new WorkerResultHandle(WorkerResultRegistry.register(this, scope)));
+        return bundle;
+    }
+
     public static <T> WorkerResult<T> fromBundle(Bundle bundle) {
+        WorkerResultHandle handle = bundle.getParcelable(WorkerResultHandle.class.getCanonicalName());
+        if(handle != null) {
+            @SuppressWarnings("unchecked")
+            WorkerResult<T> workerResult = (WorkerResult<T>)handle.get();
+            return workerResult;
+        }
         @SuppressWarnings("unchecked")
         WorkerResult<T> workerResult = (WorkerResult<T>)bundle.getSerializable(WorkerResult.class.getCanonicalName());
         return workerResult;
     }
 
+    // ハンドルを格納した Bundle の場合、レジストリから結果を解放します。
+    static void release(Bundle bundle) {
+        WorkerResultHandle handle = bundle.getParcelable(WorkerResultHandle.class.getCanonicalName());
+        if(handle != null) {
+            handle.release();
+        }
+    }
+
     public static <V> void dispatch(Fragment fragment, String requestKey, AsyncCallable.Success<V> onSucceeded) {
         dispatch(fragment, requestKey, onSucceeded, null, null, null);
     }
@@ -149,7 +207,15 @@ public class WorkerResult<V> implements Serializable {
             @Override
             public void onFragmentResult(@NonNull String requestKey, @NonNull Bundle result) {
                 WorkerResult<V> workerResult = WorkerResult.fromBundle(result);
-                workerResult.dispatch(_onSucceeded, _onFailed, _onCancelled, _onCompleted);
+                if(workerResult == null) {
+                    // ハンドルが指す結果が既に解放されている場合です。結果を黙って捨てずに、失われたことを失敗として届けます。
+                    workerResult = new WorkerResult<V>(new ExecutionException("The worker result has been lost", new NotActiveException()));
+                }
+                try {
+                    workerResult.dispatch(_onSucceeded, _onFailed, _onCancelled, _onCompleted);
+                } finally {
+                    WorkerResult.release(result);
+                }
             }
         });
     }
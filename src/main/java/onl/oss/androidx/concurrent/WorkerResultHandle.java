@@ -0,0 +1,73 @@
+package onl.oss.androidx.concurrent;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.io.Serializable;
+
+// Bundle に格納する、WorkerResult への小さなハンドルです。
+// Bundle がプロセス内に留まる間は WorkerResultRegistry の ID だけを保持し、値はシリアライズされません。
+// 状態の保存などで Bundle が Parcel に書き込まれる場合にだけ、その時点の結果を書き込みます。
+// Parcelable の値は writeValue によって Parcelable としてそのまま書き込まれ、Java のシリアライズを経由しません。
+final class WorkerResultHandle implements Parcelable {
+
+    private static final int RELEASED = -1;
+
+    private final long id;
+    private WorkerResult<?> restored;
+
+    WorkerResultHandle(long id) {
+        this.id = id;
+    }
+
+    private WorkerResultHandle(WorkerResult<?> restored) {
+        this.id = 0;
+        this.restored = restored;
+    }
+
+    WorkerResult<?> get() {
+        return (restored != null) ? restored : WorkerResultRegistry.get(id);
+    }
+
+    void release() {
+        restored = null;
+        if(id != 0) {
+            WorkerResultRegistry.release(id);
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        WorkerResult<?> result = get();
+        if(result == null) {
+            dest.writeInt(RELEASED);
+            return;
+        }
+        dest.writeInt(result.getState().ordinal());
+        dest.writeValue(result.getValue());
+        dest.writeSerializable(result.getException());
+    }
+
+    public static final Creator<WorkerResultHandle> CREATOR = new Creator<WorkerResultHandle>() {
+        @Override
+        public WorkerResultHandle createFromParcel(Parcel source) {
+            int state = source.readInt();
+            if(state == RELEASED) {
+                return new WorkerResultHandle((WorkerResult<?>)null);
+            }
+            Object value = source.readValue(WorkerResultHandle.class.getClassLoader());
+            Serializable exception = source.readSerializable();
+            return new WorkerResultHandle(new WorkerResult<Object>(Worker.State.values()[state], value, (Throwable)exception));
+        }
+
+        @Override
+        public WorkerResultHandle[] newArray(int size) {
+            return new WorkerResultHandle[size];
+        }
+    };
+}
@@ -0,0 +1,87 @@
+package onl.oss.androidx.concurrent;
+
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// WorkerResultHandle が指す結果を、同じプロセスの中で保持するレジストリです。
+// 結果は dispatch で受け取られた時点、またはスコープのアクティビティが（構成の変更以外で）破棄された時点で解放されます。
+final class WorkerResultRegistry {
+
+    private static final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+    private static final AtomicLong ids = new AtomicLong();
+
+    private WorkerResultRegistry() {
+    }
+
+    // メインスレッドから呼び出す必要があります。
+    static long register(WorkerResult<?> result, ViewModelStoreOwner scope) {
+        long id = ids.incrementAndGet();
+        Entry entry = new Entry(result);
+        if(scope != null) {
+            entry.holder = new ViewModelProvider(scope).get(Holder.class);
+            entry.holder.add(id);
+        }
+        entries.put(id, entry);
+        return id;
+    }
+
+    static WorkerResult<?> get(long id) {
+        Entry entry = entries.get(id);
+        return (entry != null) ? entry.result : null;
+    }
+
+    static void release(long id) {
+        Entry entry = entries.remove(id);
+        if(entry != null && entry.holder != null) {
+            entry.holder.remove(id);
+        }
+    }
+
+    private static final class Entry {
+        private final WorkerResult<?> result;
+        private Holder holder;
+
+        private Entry(WorkerResult<?> result) {
+            this.result = result;
+        }
+    }
+
+    // スコープに結び付けた結果の ID を保持する ViewModel です。
+    // ViewModel は構成の変更では破棄されず、新しいアクティビティにそのまま引き継がれます。
+    // アクティビティが本当に破棄されたときに onCleared が呼び出されるので、まだ受け取られていない結果をここで解放します。
+    public static final class Holder extends ViewModel {
+        private final Set<Long> ids = new HashSet<Long>();
+
+        public Holder() {
+        }
+
+        private synchronized void add(long id) {
+            ids.add(id);
+        }
+
+        private synchronized void remove(long id) {
+            ids.remove(id);
+        }
+
+        @Override
+        protected void onCleared() {
+            List<Long> pending;
+            synchronized(this) {
+                pending = new ArrayList<Long>(ids);
+                ids.clear();
+            }
+            for(Long id : pending) {
+                entries.remove(id);
+            }
+        }
+    }
+}
@@ -7,8 +7,26 @@ import onl.oss.androidx.lifecycle.RestorableViewModel;
 public class WorkerResultViewModel<V> extends RestorableViewModel {
     private MutableLiveData<Task<V>> task;
     private MutableLiveData<Worker.State> state;
-    private MutableLiveData<V> value;
-    private MutableLiveData<Throwable> exception;
+    private StoredLiveData<V> value;
+    private StoredLiveData<Throwable> exception;
+    private MutableLiveData<Double> progress;
+    private MutableLiveData<String> message;
+    private ResultPersistencePolicy persistencePolicy;
+
+    /** 値と例外を保存する方法を指定します。
+     * ポリシーを指定しない場合、値と例外はサイズにかかわらず、そのまま保存される状態に格納されます。
+     * ポリシーは永続化されないため、ビュー・モデルを取得するたびに指定してください。
+     * 既に退避されている値は、ポリシーを指定しなくても復元できます。
+     *
+     * @param policy 永続化ポリシー。null の場合はすべての値をそのまま保存します。
+     */
+    public void setPersistencePolicy(ResultPersistencePolicy policy) {
+        this.persistencePolicy = policy;
+    }
+
+    public ResultPersistencePolicy getPersistencePolicy() {
+        return persistencePolicy;
+    }
 
     public MutableLiveData<Task<V>> getTask() {
         if(task == null) {
@@ -29,15 +47,111 @@ public class WorkerResultViewModel<V> extends RestorableViewModel {
 
     public MutableLiveData<V> getValue() {
         if(value == null) {
-            value = getLiveData("value");
+            value = new StoredLiveData<V>(this.<Object>getLiveData("value"));
         }
         return value;
     }
 
     public MutableLiveData<Throwable> getException() {
         if(exception == null) {
-            exception = getLiveData("exception");
+            exception = new StoredLiveData<Throwable>(this.<Object>getLiveData("exception"));
         }
         return exception;
     }
+
+    public MutableLiveData<Double> getProgress() {
+        if(progress == null) {
+            // 進捗はタスクと同様に永続化しません。タスクが失われた場合、進捗にも意味がないからです。
+            // 更新はタスクから表示フレームごとに最大1回に間引かれて届きます。
+            progress = new MutableLiveData<Double>();
+        }
+        return progress;
+    }
+
+    public MutableLiveData<String> getMessage() {
+        if(message == null) {
+            message = new MutableLiveData<String>();
+        }
+        return message;
+    }
+
+    // 値の復元に失敗した場合（退避ファイルがキャッシュから削除された場合など）、その原因を返します。
+    Throwable getValueLoadFailure() {
+        return (value != null) ? value.getFailure() : null;
+    }
+
+    // 退避ファイルを削除します。結果を届けた後と、ビュー・モデルの破棄時に呼び出されます。
+    // 読み込み済みの値はメモリー上に残ります。
+    void releaseStorage() {
+        if(value != null) {
+            value.release();
+        }
+        if(exception != null) {
+            exception.release();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        releaseStorage();
+        super.onCleared();
+    }
+
+    // 保存される状態には、値の代わりに PersistedValue を格納します。
+    // 値は I/O 用のスレッドでシリアライズされ、必要に応じてファイルに退避されます。
+    // 復元した値は、最初に getValue が呼び出されるか、オブザーバーがアクティブになるまで読み込みません。
+    private final class StoredLiveData<T> extends MutableLiveData<T> {
+        private final MutableLiveData<Object> stored;
+
+        private StoredLiveData(MutableLiveData<Object> stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public void setValue(T value) {
+            release();
+            stored.setValue(value != null ? new PersistedValue(value, persistencePolicy) : null);
+            super.setValue(value);
+        }
+
+        // どのスレッドから呼び出しても構いません。復元した値は setValue を経由せずに読み込みます。
+        @Override
+        public T getValue() {
+            T v = super.getValue();
+            if(v != null) {
+                return v;
+            }
+            Object obj = stored.getValue();
+            if(obj instanceof PersistedValue) {
+                obj = ((PersistedValue)obj).get();
+            }
+            @SuppressWarnings("unchecked")
+            T restored = (T)obj;
+            return restored;
+        }
+
+        // onActive はメインスレッドで呼び出されるので、復元した値をオブザーバーに届けることができます。
+        @Override
+        protected void onActive() {
+            if(super.getValue() == null) {
+                T v = getValue();
+                if(v != null) {
+                    super.setValue(v);
+                }
+            }
+        }
+
+        private Throwable getFailure() {
+            Object obj = stored.getValue();
+            return (obj instanceof PersistedValue) ? ((PersistedValue)obj).getFailure() : null;
+        }
+
+        private void release() {
+            Object obj = stored.getValue();
+            if(obj instanceof PersistedValue) {
+                ((PersistedValue)obj).discard();
+                stored.setValue(null);
+            }
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncBatcherTest {
+
+    private static final int COUNT = 4;
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final AtomicInteger completed = new AtomicInteger();
+    private final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+
+    @Test
+    public void resultsAreDeliveredPerItemInOrder() throws Exception {
+        AsyncBatcher<Integer, Integer> batcher = new AsyncBatcher<Integer, Integer>(COUNT, 1, TimeUnit.MINUTES, new AsyncBatcher.Batch<Integer, Integer>() {
+            @Override
+            public List<Integer> call(List<Integer> items) {
+                List<Integer> squares = new ArrayList<Integer>(items.size());
+                for(Integer item : items) {
+                    squares.add(item * item);
+                }
+                return squares;
+            }
+        });
+        for(int i = 0; i < COUNT; i++) {
+            observe(batcher.submit(i));
+        }
+        rule.runUntil(completed, COUNT);
+        assertEquals(0, failures.size());
+        Collections.sort(results);
+        for(int i = 0; i < COUNT; i++) {
+            assertEquals(Integer.valueOf(i * i), results.get(i));
+        }
+    }
+
+    @Test
+    public void wrongResultCountFailsEveryItem() throws Exception {
+        AsyncBatcher<Integer, Integer> batcher = new AsyncBatcher<Integer, Integer>(COUNT, 1, TimeUnit.MINUTES, new AsyncBatcher.Batch<Integer, Integer>() {
+            @Override
+            public List<Integer> call(List<Integer> items) {
+                return items.subList(0, items.size() - 1);
+            }
+        });
+        for(int i = 0; i < COUNT; i++) {
+            observe(batcher.submit(i));
+        }
+        rule.runUntil(completed, COUNT);
+        assertEquals(0, results.size());
+        assertEquals(COUNT, failures.size());
+        for(Exception e : failures) {
+            assertTrue(e instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void errorFromBatchFailsEveryItem() throws Exception {
+        final List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<Throwable>());
+        // Error はワーカースレッドにもスローされるので、テストの出力を汚さないように専用のスレッドで受け止めます。
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Thread thread = new Thread(command, AsyncTestRule.WORKER);
+                thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e) {
+                        uncaught.add(e);
+                    }
+                });
+                thread.start();
+            }
+        };
+        AsyncBatcher<Integer, Integer> batcher = new AsyncBatcher<Integer, Integer>(executor, COUNT, 1, TimeUnit.MINUTES, new AsyncBatcher.Batch<Integer, Integer>() {
+            @Override
+            public List<Integer> call(List<Integer> items) {
+                throw new AssertionError("batch");
+            }
+        });
+        for(int i = 0; i < COUNT; i++) {
+            observe(batcher.submit(i));
+        }
+        rule.runUntil(completed, COUNT);
+        assertEquals(0, results.size());
+        assertEquals(COUNT, failures.size());
+        for(Exception e : failures) {
+            assertTrue(e instanceof ExecutionException);
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+    }
+
+    private void observe(AsyncCallable<Integer> async) {
+        async.onSucceeded(new AsyncCallable.Success<Integer>() {
+            @Override
+            public void onSucceeded(Integer result) {
+                results.add(result);
+                completed.incrementAndGet();
+            }
+        }).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+                completed.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.rules.ExternalResource;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.fail;
+
+// テストを実行するスレッドをメインスレッドとする VirtualTimeDispatcher と、専用のワーカースレッドを設定します。
+// 遷移と更新のキューはプロセス全体で共有されるので、終了時にはワーカーの終了を待ち、配送待ちのコマンドをすべて実行してから元に戻します。
+// 配送されないまま次のテストのディスパッチャーに差し替えると、キューが空にならず、以降の配送が止まってしまいます。
+final class AsyncTestRule extends ExternalResource {
+
+    static final String WORKER = "test-worker";
+
+    private VirtualTimeDispatcher dispatcher;
+    private MainThreadDispatcher previousDispatcher;
+    private Executor previousExecutor;
+    private ExecutorService worker;
+
+    @Override
+    protected void before() {
+        previousDispatcher = Async.getMainThreadDispatcher();
+        previousExecutor = Async.getExecutor();
+        dispatcher = new VirtualTimeDispatcher();
+        Async.setMainThreadDispatcher(dispatcher);
+        worker = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, WORKER);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Async.setExecutor(worker);
+    }
+
+    @Override
+    protected void after() {
+        worker.shutdown();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while(!worker.awaitTermination(1, TimeUnit.MILLISECONDS) && System.nanoTime() - deadline < 0) {
+                dispatcher.advanceToNextFrame();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while(dispatcher.size() > 0) {
+            dispatcher.advanceToNextFrame();
+        }
+        Async.setExecutor(previousExecutor);
+        Async.setMainThreadDispatcher(previousDispatcher);
+    }
+
+    VirtualTimeDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    // メインスレッドのコマンドを実行しながら、counter が expected に達するまで待ちます。
+    void runUntil(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(counter.get() < expected) {
+            if(System.nanoTime() - deadline > 0) {
+                fail("timed out waiting for callbacks: " + counter.get() + "/" + expected);
+            }
+            if(dispatcher.advanceToNextFrame() == 0) {
+                Thread.sleep(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CacheTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final List<Throwable> uncaught = new ArrayList<Throwable>();
+    private AsyncCache previousCache;
+    private AsyncCache cache;
+    private Thread.UncaughtExceptionHandler previousHandler;
+
+    @Before
+    public void setUp() {
+        previousCache = Async.getCache();
+        cache = new AsyncCache(AsyncCache.DEFAULT_MAX_WEIGHT).setStaleWhileRevalidate(true);
+        Async.setCache(cache);
+        previousHandler = Thread.currentThread().getUncaughtExceptionHandler();
+        Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                uncaught.add(throwable);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Thread.currentThread().setUncaughtExceptionHandler(previousHandler);
+        Async.setCache(previousCache);
+    }
+
+    @Test
+    public void failedRevalidationIsNotReported() throws Exception {
+        final String key = "failedRevalidationIsNotReported";
+        cache.put(key, "stale", 0);
+        final AtomicInteger fetched = new AtomicInteger();
+        final List<String> results = new ArrayList<String>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async.cached(key, 1, TimeUnit.MINUTES, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                fetched.incrementAndGet();
+                throw new IOException("offline");
+            }
+        }).onSucceeded(new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                results.add(result);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        rule.runUntil(fetched, 1);
+        // 失敗の配送まで、メインスレッドのコマンドを実行し続けます。
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        while(System.nanoTime() - deadline < 0) {
+            rule.getDispatcher().advanceToNextFrame();
+            Thread.sleep(1);
+        }
+        assertEquals("stale", results.get(0));
+        assertTrue(String.valueOf(uncaught), uncaught.isEmpty());
+    }
+
+    @Test
+    public void cacheFillDoesNotJoinKeyedExecute() throws Exception {
+        final String key = "cacheFillDoesNotJoinKeyedExecute";
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> results = new ArrayList<String>();
+        final AtomicInteger completed = new AtomicInteger();
+        AsyncCallable.Success<String> success = new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                results.add(result);
+                completed.incrementAndGet();
+            }
+        };
+        Async.cached(key, 1, TimeUnit.MINUTES, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                release.await();
+                return "cached";
+            }
+        }).onSucceeded(success);
+        Async.execute(key, new Callable<String>() {
+            @Override
+            public String call() {
+                return "other";
+            }
+        }).onSucceeded(success);
+        rule.runUntil(completed, 1);
+        assertEquals("other", results.get(0));
+        release.countDown();
+        rule.runUntil(completed, 2);
+        assertEquals("cached", results.get(1));
+        assertEquals("cached", cache.lookup(key).value);
+    }
+}
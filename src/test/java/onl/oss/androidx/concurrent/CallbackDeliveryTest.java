@@ -0,0 +1,175 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CallbackDeliveryTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    @Before
+    public void setUp() {
+        Async.setCache(new AsyncCache(AsyncCache.DEFAULT_MAX_WEIGHT));
+    }
+
+    @After
+    public void tearDown() {
+        Async.setCache(null);
+    }
+
+    @Test
+    public void cacheHitOnMainThreadDeliversToCallbacksRegisteredAfterwards() {
+        Async.getCache().put("key", "cached", TimeUnit.MINUTES.toNanos(1));
+        final AtomicReference<String> value = new AtomicReference<String>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async.cached("key", 1, TimeUnit.MINUTES, new Callable<String>() {
+            @Override
+            public String call() {
+                throw new AssertionError("cache hit must not run the callable");
+            }
+        }).onSucceeded(new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                value.set(result);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        // 配送はメインスレッドのキューを経由するので、呼び出し元に戻った時点ではまだ届いていません。
+        assertEquals(null, value.get());
+        rule.getDispatcher().runAll();
+        assertEquals("cached", value.get());
+        assertEquals(1, completed.get());
+    }
+
+    @Test
+    public void callbacksAreDeliveredOnceWhenRegisteredBeforeDelivery() throws Exception {
+        final AtomicInteger succeeded = new AtomicInteger();
+        Async.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        }).onSucceeded(new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                succeeded.incrementAndGet();
+            }
+        });
+        rule.runUntil(succeeded, 1);
+        rule.getDispatcher().runAll();
+        assertEquals(1, succeeded.get());
+    }
+
+    @Test
+    public void callbackRegisteredAfterDeliveryIsReplayedOnMainThread() throws Exception {
+        final AtomicInteger completed = new AtomicInteger();
+        AsyncCallable<String> async = Async.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        final CountDownLatch registered = new CountDownLatch(1);
+        final AsyncCallable<String> late = async;
+        // メインスレッド以外から後で設定したコールバックも、メインスレッドで呼び出されます。
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                late.onSucceeded(new AsyncCallable.Success<String>() {
+                    @Override
+                    public void onSucceeded(String result) {
+                        thread.set(Thread.currentThread());
+                    }
+                });
+                registered.countDown();
+            }
+        });
+        other.start();
+        assertTrue(registered.await(5, TimeUnit.SECONDS));
+        rule.getDispatcher().runAll();
+        assertSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test
+    public void cancelOnMainThreadIsReplayedToLateCallbacks() {
+        final AtomicInteger cancelled = new AtomicInteger();
+        Async<String> async = Async.prepare(new Callable<String>() {
+            @Override
+            public String call() {
+                return "never";
+            }
+        });
+        // メインスレッドからのキャンセルはその場で配送されます。
+        async.cancel();
+        async.onCancelled(new Async.Cancel() {
+            @Override
+            public void onCancelled() {
+                cancelled.incrementAndGet();
+            }
+        });
+        rule.getDispatcher().runAll();
+        assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    public void preparedDirectCallbackRunsOnWorkerThread() throws Exception {
+        final AtomicReference<String> thread = new AtomicReference<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Async.prepare(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        }).callbackOn(Async.DIRECT).onSucceeded(new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                thread.set(Thread.currentThread().getName());
+                done.countDown();
+            }
+        }).start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(AsyncTestRule.WORKER, thread.get());
+        assertEquals(0, rule.getDispatcher().size());
+    }
+
+    @Test
+    public void startTwiceFails() {
+        Async<Void> async = Async.prepare(new LooseRunnable() {
+            @Override
+            public void run() {
+            }
+        });
+        async.start();
+        try {
+            async.start();
+            fail();
+        } catch(IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CallbackWatchdogTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final AtomicInteger reported = new AtomicInteger();
+    private final List<Object> overBudget = Collections.synchronizedList(new ArrayList<Object>());
+    private final List<Throwable> uncaught = new ArrayList<Throwable>();
+    private Thread.UncaughtExceptionHandler previousHandler;
+
+    @Before
+    public void setUp() {
+        previousHandler = Thread.currentThread().getUncaughtExceptionHandler();
+        // コールバックの例外はメインスレッドの UncaughtExceptionHandler に届くので、ここで受け止めます。
+        Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable e) {
+                uncaught.add(e);
+            }
+        });
+        new CallbackWatchdog(1, TimeUnit.MILLISECONDS).setListener(new CallbackWatchdog.Listener() {
+            @Override
+            public void onCallbackOverBudget(Object callback, long elapsedNanos, StackTraceElement[] stack) {
+                overBudget.add(callback);
+                reported.incrementAndGet();
+            }
+
+            @Override
+            public void onTaskOverBudget(Task<?> task, long elapsedNanos, StackTraceElement[] stack) {
+            }
+        }).install();
+    }
+
+    @After
+    public void tearDown() {
+        CallbackWatchdog.uninstall();
+        Thread.currentThread().setUncaughtExceptionHandler(previousHandler);
+    }
+
+    @Test
+    public void slowCallbackThatThrowsIsStillReported() throws Exception {
+        AsyncCallable.Success<String> success = new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) throws Exception {
+                Thread.sleep(20);
+                throw new IOException("callback");
+            }
+        };
+        Async.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                return "value";
+            }
+        }).onSucceeded(success);
+        rule.runUntil(reported, 1);
+        assertSame(success, overBudget.get(0));
+        assertEquals(1, uncaught.size());
+        assertTrue(String.valueOf(uncaught), uncaught.get(0) instanceof IOException);
+    }
+}
@@ -0,0 +1,132 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ChainTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final Map<Task<?>, Thread> deliveries = new ConcurrentHashMap<Task<?>, Thread>();
+
+    @After
+    public void tearDown() {
+        Async.setTaskListener(null);
+    }
+
+    @Test
+    public void onlyLastStageIsDeliveredOnMainThread() throws Exception {
+        Async.setTaskListener(new TaskListener() {
+            @Override
+            public void onSubmitted(Task<?> task, long nanos) {
+            }
+
+            @Override
+            public void onStarted(Task<?> task, long nanos) {
+            }
+
+            @Override
+            public void onFinished(Task<?> task, long nanos) {
+            }
+
+            @Override
+            public void onDeliveryStarted(Task<?> task, long nanos) {
+                deliveries.put(task, Thread.currentThread());
+            }
+
+            @Override
+            public void onDeliveryFinished(Task<?> task, long nanos) {
+            }
+        });
+        final AtomicInteger succeeded = new AtomicInteger();
+        Async<Integer> head = Async.prepare(constant(1));
+        Async<Integer> middle = head.map(increment());
+        Async<Integer> tail = middle.map(increment());
+        tail.onSucceeded(new AsyncCallable.Success<Integer>() {
+            @Override
+            public void onSucceeded(Integer result) {
+                succeeded.set(result);
+            }
+        });
+        head.start();
+        rule.runUntil(succeeded, 3);
+        assertNotSame(Thread.currentThread(), deliveries.get(head.getTask()));
+        assertNotSame(Thread.currentThread(), deliveries.get(middle.getTask()));
+        assertSame(Thread.currentThread(), deliveries.get(tail.getTask()));
+        assertEquals(Worker.State.SUCCEEDED, head.getTask().getState());
+    }
+
+    @Test
+    public void callbackOnChainedStageFailsFast() {
+        Async<Integer> head = Async.prepare(constant(1));
+        head.map(increment());
+        try {
+            head.onSucceeded(new AsyncCallable.Success<Integer>() {
+                @Override
+                public void onSucceeded(Integer result) {
+                }
+            });
+            fail();
+        } catch(IllegalStateException expected) {
+        }
+        head.start();
+    }
+
+    @Test
+    public void chainingStageWithCallbacksFailsFast() {
+        Async<Integer> head = Async.prepare(constant(1));
+        head.onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+            }
+        });
+        try {
+            head.map(increment());
+            fail();
+        } catch(IllegalStateException expected) {
+        }
+        head.start();
+    }
+
+    @Test
+    public void branchingFailsFast() {
+        Async<Integer> head = Async.prepare(constant(1));
+        head.map(increment());
+        try {
+            head.map(increment());
+            fail();
+        } catch(IllegalStateException expected) {
+        }
+        head.start();
+    }
+
+    private static Callable<Integer> constant(final int value) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return value;
+            }
+        };
+    }
+
+    private static AsyncCallable.Function<Integer, Integer> increment() {
+        return new AsyncCallable.Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                return value + 1;
+            }
+        };
+    }
+}
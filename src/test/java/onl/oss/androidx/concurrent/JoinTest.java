@@ -0,0 +1,78 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JoinTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    @Test
+    public void rejectedMemberCancelsStartedMembersAndFails() throws Exception {
+        final Executor workers = Async.getExecutor();
+        final AtomicInteger accepted = new AtomicInteger();
+        // 最初の1つだけを受け付け、2つ目以降を拒否します。
+        Async.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if(accepted.getAndIncrement() > 0) {
+                    throw new RejectedExecutionException("full");
+                }
+                workers.execute(command);
+            }
+        });
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Callable<String> blocking = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch(InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "late";
+            }
+        };
+        Callable<String> never = new Callable<String>() {
+            @Override
+            public String call() {
+                return "never";
+            }
+        };
+        final List<Exception> failures = new ArrayList<Exception>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async.all(Arrays.asList(blocking, never)).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        assertEquals(1, failures.size());
+        assertTrue(String.valueOf(failures), failures.get(0) instanceof RejectedExecutionException);
+        // 投入済みの処理は、開始前にキャンセルされたか、開始後に割り込まれています。
+        assertTrue(!started.await(100, TimeUnit.MILLISECONDS) || interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
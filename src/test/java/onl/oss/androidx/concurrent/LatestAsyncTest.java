@@ -0,0 +1,129 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatestAsyncTest {
+
+    private static final int COUNT = 5;
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final AtomicInteger delivered = new AtomicInteger();
+    private final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+
+    @Test
+    public void olderResultCompletingLaterIsDropped() throws Exception {
+        LatestAsync<Integer> latest = observe(new LatestAsync<Integer>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger finished = new AtomicInteger();
+        latest.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                started.countDown();
+                // 割り込みを無視して、新しい処理より後に完了させます。
+                while(true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch(InterruptedException ignore) {
+                    }
+                }
+                finished.incrementAndGet();
+                return 1;
+            }
+        });
+        // 実行前に破棄されないように、古い処理が実行を始めてから次の処理を投入します。
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        latest.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 2;
+            }
+        });
+        rule.runUntil(delivered, 1);
+        release.countDown();
+        rule.runUntil(finished, 1);
+        drainFor(100);
+        assertEquals(Collections.singletonList(2), results);
+        assertEquals(0, failures.size());
+    }
+
+    @Test
+    public void debounceRunsOnlyTheLastSubmission() throws Exception {
+        LatestAsync<Integer> latest = observe(Async.<Integer>debounce(50, TimeUnit.MILLISECONDS));
+        final AtomicInteger invoked = new AtomicInteger();
+        for(int i = 0; i < COUNT; i++) {
+            final int value = i;
+            latest.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    invoked.incrementAndGet();
+                    return value;
+                }
+            });
+        }
+        rule.runUntil(delivered, 1);
+        drainFor(100);
+        assertEquals(1, invoked.get());
+        assertEquals(Collections.singletonList(COUNT - 1), results);
+    }
+
+    @Test
+    public void cancelDropsPendingSubmission() throws Exception {
+        LatestAsync<Integer> latest = observe(Async.<Integer>debounce(20, TimeUnit.MILLISECONDS));
+        final AtomicInteger invoked = new AtomicInteger();
+        latest.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                invoked.incrementAndGet();
+                return 1;
+            }
+        });
+        latest.cancel();
+        drainFor(100);
+        assertEquals(0, invoked.get());
+        assertEquals(0, results.size());
+        assertEquals(0, failures.size());
+    }
+
+    private LatestAsync<Integer> observe(LatestAsync<Integer> latest) {
+        return latest.onSucceeded(new AsyncCallable.Success<Integer>() {
+            @Override
+            public void onSucceeded(Integer result) {
+                results.add(result);
+                delivered.incrementAndGet();
+            }
+        }).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+                delivered.incrementAndGet();
+            }
+        });
+    }
+
+    // 遅れて届くコールバックがないことを確かめるため、しばらくメインスレッドのコマンドを実行し続けます。
+    private void drainFor(long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while(System.nanoTime() - deadline < 0) {
+            if(rule.getDispatcher().advanceToNextFrame() == 0) {
+                Thread.sleep(1);
+            }
+        }
+    }
+}
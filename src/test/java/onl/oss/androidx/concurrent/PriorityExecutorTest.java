@@ -0,0 +1,131 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityExecutorTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> cancelled = new ArrayList<String>();
+    private final List<String> succeeded = new ArrayList<String>();
+    private final AtomicInteger completed = new AtomicInteger();
+    private PriorityExecutor executor;
+
+    @Before
+    public void setUp() {
+        // ワーカー1つ、キューの容量1つなので、実行中のタスクとキューのタスクが1つずつになった後の投入はすべて拒否されます。
+        executor = new PriorityExecutor(1, 1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, AsyncTestRule.WORKER);
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new PriorityExecutor.DiscardLowestPriorityPolicy());
+        Async.setExecutor(executor);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void evictedTaskIsCancelled() throws Exception {
+        submit(Async.Priority.NORMAL, "running");
+        submit(Async.Priority.PREFETCH, "prefetch");
+        submit(Async.Priority.UI_CRITICAL, "critical");
+        rule.runUntil(completed, 1);
+        assertEquals(1, cancelled.size());
+        assertEquals("prefetch", cancelled.get(0));
+        release.countDown();
+        rule.runUntil(completed, 3);
+        assertEquals(2, succeeded.size());
+        assertEquals("critical", succeeded.get(1));
+    }
+
+    @Test
+    public void rejectedTaskIsCancelled() throws Exception {
+        submit(Async.Priority.NORMAL, "running");
+        submit(Async.Priority.UI_CRITICAL, "critical");
+        submit(Async.Priority.PREFETCH, "prefetch");
+        rule.runUntil(completed, 1);
+        assertEquals(1, cancelled.size());
+        assertEquals("prefetch", cancelled.get(0));
+        release.countDown();
+        rule.runUntil(completed, 3);
+        assertEquals(2, succeeded.size());
+    }
+
+    @Test
+    public void defaultPolicyDoesNotThrow() {
+        PriorityExecutor defaults = new PriorityExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable);
+            }
+        });
+        try {
+            assertTrue(defaults.getRejectedExecutionHandler() instanceof PriorityExecutor.DiscardLowestPriorityPolicy);
+        } finally {
+            defaults.shutdown();
+        }
+    }
+
+    @Test
+    public void taskSubmittedAfterShutdownIsCancelled() throws Exception {
+        executor.shutdown();
+        submit(Async.Priority.NORMAL, "late");
+        rule.runUntil(completed, 1);
+        assertEquals(1, cancelled.size());
+    }
+
+    private void submit(Async.Priority priority, final String name) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        Async.execute(priority, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                release.await();
+                return name;
+            }
+        }).onSucceeded(new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                succeeded.add(result);
+            }
+        }).onCancelled(new Async.Cancel() {
+            @Override
+            public void onCancelled() {
+                cancelled.add(name);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        if(name.equals("running")) {
+            // 最初のタスクがワーカーで実行されてから、キューを埋めます。
+            started.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressTaskTest {
+
+    private static final int COUNT = 1000;
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    @Test
+    public void publishedValuesAreCoalescedOnMainThread() throws Exception {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicInteger last = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>();
+        ProgressTask<String, Integer> task = new ProgressTask<String, Integer>() {
+            @Override
+            protected String call() {
+                for(int i = 1; i <= COUNT; i++) {
+                    publish(i);
+                }
+                finished.countDown();
+                return "done";
+            }
+
+            @Override
+            protected void published(Integer partial) {
+                threads.add(Thread.currentThread());
+                last.set(partial);
+            }
+        };
+        Async.submit(Async.getExecutor(), Async.Priority.NORMAL, task);
+        // フレームを進めるまでは何も配送されないので、公開した値はすべて最新の1つにまとめられます。
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        rule.runUntil(last, COUNT);
+        assertEquals(1, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void progressCallablePublishesTypedValues() throws Exception {
+        final AtomicInteger last = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        ProgressAsyncCallable<String, Integer> async = Async.execute(new ProgressCallable<String, Integer>() {
+            @Override
+            public String call(Reporter<Integer> reporter) {
+                reporter.publish(COUNT);
+                return "done";
+            }
+        });
+        async.onPublished(new Async.Partial<Integer>() {
+            @Override
+            public void onPublished(Integer partial) {
+                last.set(partial);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        rule.runUntil(last, COUNT);
+    }
+}
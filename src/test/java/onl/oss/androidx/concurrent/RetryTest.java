@@ -0,0 +1,149 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RetryTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private static RetryPolicy immediate(int maxAttempts) {
+        return new RetryPolicy(maxAttempts).backoff(1, 1, TimeUnit.MILLISECONDS).jitter(0.0);
+    }
+
+    @Test
+    public void timeoutBoundsEveryAttempt() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Exception> failures = new ArrayList<Exception>();
+        final AtomicInteger completed = new AtomicInteger();
+        long start = System.nanoTime();
+        Async.execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if(attempts.incrementAndGet() == 1) {
+                    throw new IOException("first");
+                }
+                Thread.sleep(3000);
+                return "late";
+            }
+        }).timeout(100, TimeUnit.MILLISECONDS).retry(immediate(2)).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(2, attempts.get());
+        assertTrue(String.valueOf(failures), failures.get(0) instanceof TaskTimeoutException);
+        assertTrue("second attempt ran for " + elapsed + " ms", elapsed < 2000);
+    }
+
+    @Test
+    public void deadlineBoundsAllAttempts() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Exception> failures = new ArrayList<Exception>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async.execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                attempts.incrementAndGet();
+                Thread.sleep(20);
+                throw new IOException("always");
+            }
+        }).retry(immediate(1000)).deadline(rule.getDispatcher().now() + TimeUnit.MILLISECONDS.toNanos(200)).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        assertTrue(String.valueOf(failures), failures.get(0) instanceof TaskTimeoutException);
+        int stopped = attempts.get();
+        Thread.sleep(200);
+        assertEquals(stopped, attempts.get());
+    }
+
+    @Test
+    public void onRetryRunsOnMainThreadByDefault() throws Exception {
+        final List<Thread> threads = new ArrayList<Thread>();
+        final AtomicInteger completed = new AtomicInteger();
+        retryOnce().onRetry(new Async.Retry() {
+            @Override
+            public void onRetry(int attempt, Exception exception) {
+                threads.add(Thread.currentThread());
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        assertEquals(1, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void onRetryFollowsCallbackExecutor() throws Exception {
+        final List<Thread> threads = new ArrayList<Thread>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async<String> head = Async.prepare(failOnce());
+        head.callbackOn(Async.DIRECT);
+        head.retry(immediate(2)).onRetry(new Async.Retry() {
+            @Override
+            public void onRetry(int attempt, Exception exception) {
+                threads.add(Thread.currentThread());
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        head.start();
+        rule.runUntil(completed, 1);
+        assertEquals(1, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+    }
+
+    private AsyncCallable<String> retryOnce() {
+        return Async.execute(failOnce()).retry(immediate(2));
+    }
+
+    private static Callable<String> failOnce() {
+        final AtomicInteger attempts = new AtomicInteger();
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if(attempts.incrementAndGet() == 1) {
+                    throw new IOException("first");
+                }
+                return "ok";
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SerialLaneTest {
+
+    private static final int COUNT = 50;
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    @Test
+    public void sameLaneRunsInSubmissionOrderOneAtATime() throws Exception {
+        Object lane = new Object();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        for(int i = 0; i < COUNT; i++) {
+            final int index = i;
+            observe(Async.serial(lane, new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    if(running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    Thread.sleep(1);
+                    order.add(index);
+                    running.decrementAndGet();
+                    return index;
+                }
+            }));
+        }
+        rule.runUntil(completed, COUNT);
+        assertEquals(0, overlaps.get());
+        for(int i = 0; i < COUNT; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        assertEquals(0, Async.getSerialQueueDepth(lane));
+    }
+
+    @Test
+    public void differentLanesRunConcurrently() throws Exception {
+        final CountDownLatch other = new CountDownLatch(1);
+        final List<Boolean> results = new ArrayList<Boolean>();
+        Async.serial("lane-a", new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                // もう一方のレーンが並行して実行されなければ、ここで待ち続けます。
+                return other.await(5, TimeUnit.SECONDS);
+            }
+        }).onSucceeded(new AsyncCallable.Success<Boolean>() {
+            @Override
+            public void onSucceeded(Boolean result) {
+                results.add(result);
+                completed.incrementAndGet();
+            }
+        });
+        observe(Async.serial("lane-b", new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                other.countDown();
+                return true;
+            }
+        }));
+        rule.runUntil(completed, 2);
+        assertEquals(Boolean.TRUE, results.get(0));
+    }
+
+    @Test
+    public void failureDoesNotStallTheLane() throws Exception {
+        Object lane = new Object();
+        observe(Async.serial(lane, new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new IOException("first");
+            }
+        }));
+        final List<Integer> results = new ArrayList<Integer>();
+        Async.serial(lane, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 2;
+            }
+        }).onSucceeded(new AsyncCallable.Success<Integer>() {
+            @Override
+            public void onSucceeded(Integer result) {
+                results.add(result);
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 2);
+        assertEquals(Integer.valueOf(2), results.get(0));
+    }
+
+    private <V> void observe(AsyncCallable<V> async) {
+        async.onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+    }
+}
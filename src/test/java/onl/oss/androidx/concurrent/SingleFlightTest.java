@@ -0,0 +1,104 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<String> results = new ArrayList<String>();
+    private final List<Worker.State> states = new ArrayList<Worker.State>();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final Callable<String> source = new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch(InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "shared";
+        }
+    };
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        Object key = new Object();
+        observe(Async.execute(key, source));
+        observe(Async.execute(key, source));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        rule.runUntil(completed, 2);
+        assertEquals(1, calls.get());
+        assertEquals(2, results.size());
+        assertEquals("shared", results.get(0));
+        assertEquals("shared", results.get(1));
+    }
+
+    @Test
+    public void sourceSurvivesUntilEverySubscriberCancels() throws Exception {
+        Object key = new Object();
+        AsyncCallable<String> first = observe(Async.execute(key, source));
+        AsyncCallable<String> second = observe(Async.execute(key, source));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // 同じ呼び出し元が何度キャンセルしても、1回として数えます。
+        first.cancel();
+        first.cancel();
+        rule.runUntil(completed, 1);
+        assertFalse(interrupted.await(100, TimeUnit.MILLISECONDS));
+        second.cancel();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        rule.runUntil(completed, 2);
+        assertEquals(Worker.State.CANCELLED, states.get(0));
+        assertEquals(Worker.State.CANCELLED, states.get(1));
+    }
+
+    @Test
+    public void cancelledSubscriberDoesNotAffectOthers() throws Exception {
+        Object key = new Object();
+        AsyncCallable<String> first = observe(Async.execute(key, source));
+        observe(Async.execute(key, source));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        first.cancel();
+        release.countDown();
+        rule.runUntil(completed, 2);
+        assertEquals(1, results.size());
+        assertEquals("shared", results.get(0));
+    }
+
+    private AsyncCallable<String> observe(AsyncCallable<String> async) {
+        return async.onSucceeded(new AsyncCallable.Success<String>() {
+            @Override
+            public void onSucceeded(String result) {
+                results.add(result);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                states.add(state);
+                completed.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,140 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 投入からコールバックまでの定常状態の割り当てを計測します。
+// 作成されるのは Async、AsyncTask、Task 内部の Callable の3つだけで（既定のエグゼキューターではさらにキューのエントリーが1つ）、
+// 投入、遷移の配送、コールバックの呼び出しでは何も割り当てないことを確認します。
+public class TaskAllocationTest {
+
+    private static final int ITERATIONS = 20000;
+
+    // JIT によるばらつきを吸収するための、1回あたりの許容量（バイト）です。オブジェクト1つより小さな値にします。
+    private static final long TOLERANCE = 8;
+
+    private static final Object VALUE = new Object();
+
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static volatile Object sink;
+
+    private com.sun.management.ThreadMXBean bean;
+    private VirtualTimeDispatcher dispatcher;
+    private MainThreadDispatcher previous;
+    private int succeeded;
+
+    private final Callable<Object> callable = new Callable<Object>() {
+        @Override
+        public Object call() {
+            return VALUE;
+        }
+    };
+
+    private final AsyncCallable.Success<Object> success = new AsyncCallable.Success<Object>() {
+        @Override
+        public void onSucceeded(Object result) {
+            succeeded++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(b instanceof com.sun.management.ThreadMXBean);
+        bean = (com.sun.management.ThreadMXBean)b;
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+        previous = Async.getMainThreadDispatcher();
+        dispatcher = new VirtualTimeDispatcher();
+        Async.setMainThreadDispatcher(dispatcher);
+    }
+
+    @After
+    public void tearDown() {
+        if(dispatcher != null) {
+            Async.setMainThreadDispatcher(previous);
+        }
+    }
+
+    @Test
+    public void directDeliveryAllocatesNothingAfterCreation() {
+        Runnable created = new Runnable() {
+            @Override
+            public void run() {
+                sink = create(Async.DIRECT);
+            }
+        };
+        Runnable roundTrip = new Runnable() {
+            @Override
+            public void run() {
+                Async<Object> async = create(Async.DIRECT);
+                Async.submit(INLINE, Async.Priority.NORMAL, async.getTask());
+                sink = async;
+            }
+        };
+        assertNoExtraAllocation(created, roundTrip);
+    }
+
+    @Test
+    public void mainThreadDeliveryAllocatesNothingAfterCreation() {
+        Runnable created = new Runnable() {
+            @Override
+            public void run() {
+                sink = create(null);
+            }
+        };
+        Runnable roundTrip = new Runnable() {
+            @Override
+            public void run() {
+                Async<Object> async = create(null);
+                Async.submit(INLINE, Async.Priority.NORMAL, async.getTask());
+                dispatcher.runAll();
+                sink = async;
+            }
+        };
+        assertNoExtraAllocation(created, roundTrip);
+    }
+
+    private Async<Object> create(Executor callbackExecutor) {
+        Async<Object> async = Async.deferred(INLINE, callable);
+        async.callbackOn(callbackExecutor);
+        async.onSucceeded(success);
+        return async;
+    }
+
+    private void assertNoExtraAllocation(Runnable created, Runnable roundTrip) {
+        // 計測の前に、両方の経路を JIT でコンパイルさせます。
+        measure(created);
+        measure(roundTrip);
+        succeeded = 0;
+        long base = measure(created);
+        long total = measure(roundTrip);
+        assertEquals(ITERATIONS, succeeded);
+        long extra = (total - base) / ITERATIONS;
+        assertTrue("submit to callback allocated " + extra + " bytes per task", extra <= TOLERANCE);
+    }
+
+    private long measure(Runnable runnable) {
+        long id = Thread.currentThread().getId();
+        long start = bean.getThreadAllocatedBytes(id);
+        for(int i = 0; i < ITERATIONS; i++) {
+            runnable.run();
+        }
+        return bean.getThreadAllocatedBytes(id) - start;
+    }
+}
@@ -0,0 +1,198 @@
+package onl.oss.androidx.concurrent;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskScopeTest {
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    private final FakeOwner owner = new FakeOwner();
+    private final AtomicInteger delivered = new AtomicInteger();
+
+    @Test
+    public void destroyCancelsRunningTasks() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        TaskScope scope = TaskScope.of(owner);
+        observe(scope.execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch(InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "late";
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scope.size());
+        owner.moveTo(Lifecycle.State.DESTROYED);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        drain();
+        assertEquals(0, scope.size());
+        assertEquals(0, delivered.get());
+    }
+
+    @Test
+    public void destroyCancelsChainedStages() throws Exception {
+        final CountDownLatch mapping = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        TaskScope scope = TaskScope.of(owner);
+        observe(scope.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                return "first";
+            }
+        }).map(new AsyncCallable.Function<String, String>() {
+            @Override
+            public String apply(String value) throws Exception {
+                mapping.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch(InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return value;
+            }
+        }));
+        assertTrue(mapping.await(5, TimeUnit.SECONDS));
+        owner.moveTo(Lifecycle.State.DESTROYED);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        drain();
+        assertEquals(0, scope.size());
+        assertEquals(0, delivered.get());
+    }
+
+    @Test
+    public void callbacksAreSuppressedBelowMinimumState() throws Exception {
+        TaskScope scope = TaskScope.of(owner).setMinimumState(Lifecycle.State.STARTED);
+        final CountDownLatch finished = new CountDownLatch(1);
+        observe(scope.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                finished.countDown();
+                return "hidden";
+            }
+        }));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        drain();
+        assertEquals(0, delivered.get());
+        owner.moveTo(Lifecycle.State.STARTED);
+        observe(scope.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                return "shown";
+            }
+        }));
+        rule.runUntil(delivered, 1);
+    }
+
+    @Test
+    public void executeAfterDestroyDoesNotRun() throws Exception {
+        TaskScope scope = TaskScope.of(owner);
+        owner.moveTo(Lifecycle.State.DESTROYED);
+        final AtomicInteger calls = new AtomicInteger();
+        observe(TaskScope.of(owner).execute(new Callable<String>() {
+            @Override
+            public String call() {
+                calls.incrementAndGet();
+                return "never";
+            }
+        }));
+        drain();
+        assertEquals(0, calls.get());
+        assertEquals(0, delivered.get());
+        assertEquals(0, scope.size());
+        assertFalse(owner.lifecycle.observers.contains(scope));
+    }
+
+    private void observe(AsyncCallable<String> async) {
+        async.onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                delivered.incrementAndGet();
+            }
+        });
+    }
+
+    // 配送待ちのコールバックがあれば、すべて実行します。
+    private void drain() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        while(System.nanoTime() - deadline < 0) {
+            rule.getDispatcher().advanceToNextFrame();
+            Thread.sleep(1);
+        }
+    }
+
+    private static final class FakeOwner implements LifecycleOwner {
+        private final FakeLifecycle lifecycle = new FakeLifecycle(this);
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+
+        void moveTo(Lifecycle.State state) {
+            lifecycle.moveTo(state);
+        }
+    }
+
+    private static final class FakeLifecycle extends Lifecycle {
+        private final LifecycleOwner owner;
+        private final List<LifecycleObserver> observers = new ArrayList<LifecycleObserver>();
+        private State state = State.CREATED;
+
+        private FakeLifecycle(LifecycleOwner owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void addObserver(@NonNull LifecycleObserver observer) {
+            observers.add(observer);
+        }
+
+        @Override
+        public void removeObserver(@NonNull LifecycleObserver observer) {
+            observers.remove(observer);
+        }
+
+        @NonNull
+        @Override
+        public State getCurrentState() {
+            return state;
+        }
+
+        void moveTo(State state) {
+            this.state = state;
+            if(state == State.DESTROYED) {
+                for(LifecycleObserver observer : new ArrayList<LifecycleObserver>(observers)) {
+                    ((LifecycleEventObserver)observer).onStateChanged(owner, Event.ON_DESTROY);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package onl.oss.androidx.concurrent;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutTest {
+
+    private static final int RUNS = 20;
+
+    @Rule
+    public final AsyncTestRule rule = new AsyncTestRule();
+
+    @Test
+    public void interruptedWorkerFailsWithTimeoutException() throws Exception {
+        final List<Exception> failures = new ArrayList<Exception>();
+        final AtomicInteger completed = new AtomicInteger();
+        for(int i = 0; i < RUNS; i++) {
+            Async.execute(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    Thread.sleep(5000);
+                    return "late";
+                }
+            }).timeout(20, TimeUnit.MILLISECONDS).onFailed(new Async.Failure() {
+                @Override
+                public void onFailed(Exception exception) {
+                    failures.add(exception);
+                }
+            }).onCompleted(new Async.Complete() {
+                @Override
+                public void onCompleted(Worker.State state) {
+                    completed.incrementAndGet();
+                }
+            });
+        }
+        rule.runUntil(completed, RUNS);
+        assertEquals(RUNS, failures.size());
+        for(Exception e : failures) {
+            assertTrue(String.valueOf(e), e instanceof TaskTimeoutException);
+        }
+    }
+
+    @Test
+    public void timeoutFollowsVirtualTime() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final List<Exception> failures = new ArrayList<Exception>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async.execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                new CountDownLatch(1).await();
+                return "late";
+            }
+        }).timeout(1, TimeUnit.MINUTES).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        rule.getDispatcher().advanceBy(59, TimeUnit.SECONDS);
+        assertEquals(0, completed.get());
+        // 実時間では1分経っていなくても、仮想時間が1分進めばタイムアウトします。
+        rule.getDispatcher().advanceBy(1, TimeUnit.SECONDS);
+        rule.runUntil(completed, 1);
+        assertTrue(String.valueOf(failures), failures.get(0) instanceof TaskTimeoutException);
+    }
+
+    @Test
+    public void cancelOnTimeoutDeliversCancelled() throws Exception {
+        final List<Worker.State> states = new ArrayList<Worker.State>();
+        final AtomicInteger completed = new AtomicInteger();
+        for(int i = 0; i < RUNS; i++) {
+            Async.execute(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    Thread.sleep(5000);
+                    return "late";
+                }
+            }).timeout(20, TimeUnit.MILLISECONDS).cancelOnTimeout().onCompleted(new Async.Complete() {
+                @Override
+                public void onCompleted(Worker.State state) {
+                    states.add(state);
+                    completed.incrementAndGet();
+                }
+            });
+        }
+        rule.runUntil(completed, RUNS);
+        for(Worker.State state : states) {
+            assertEquals(Worker.State.CANCELLED, state);
+        }
+    }
+
+    @Test
+    public void deadlineBoundsQueuedTask() throws Exception {
+        final List<Exception> failures = new ArrayList<Exception>();
+        final AtomicInteger completed = new AtomicInteger();
+        Async.execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Thread.sleep(5000);
+                return "late";
+            }
+        }).deadline(rule.getDispatcher().now() + TimeUnit.MILLISECONDS.toNanos(20)).onFailed(new Async.Failure() {
+            @Override
+            public void onFailed(Exception exception) {
+                failures.add(exception);
+            }
+        }).onCompleted(new Async.Complete() {
+            @Override
+            public void onCompleted(Worker.State state) {
+                completed.incrementAndGet();
+            }
+        });
+        rule.runUntil(completed, 1);
+        assertTrue(String.valueOf(failures), failures.get(0) instanceof TaskTimeoutException);
+    }
+
+    @Test
+    public void completedTaskDoesNotReportTimeout() throws Exception {
+        Task<String> task = new Task<String>() {
+            @Override
+            protected String call() {
+                return "done";
+            }
+        };
+        task.setCallbackExecutor(Async.DIRECT);
+        task.run();
+        // タイマーが isDone() を確認した直後にタスクが完了し、キャンセルできなかった場合と同じ状態にします。
+        Field field = Task.class.getDeclaredField("timeoutException");
+        field.setAccessible(true);
+        field.set(task, new TaskTimeoutException("Task timed out"));
+        assertNull(task.getTimeoutFailure());
+        assertEquals("done", task.get());
+    }
+}